@@ -0,0 +1,178 @@
+package com.sourabh.springai;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Cache of generated responses for the most requested keys of one endpoint, such as artists.
+ * <p>
+ * Every request is counted in a {@link CountMinSketch}. Keys whose count reaches
+ * {@code minCount} become hot-key candidates, and the {@code hotKeys} candidates with the
+ * highest counts are kept. Only responses for those keys are cached, so the long tail of rare
+ * keys is always generated live and never evicts a popular answer. The {@link ResponsePrecomputer}
+ * regenerates hot entries before they expire.
+ * <p>
+ * Keys are counted and cached in a normalized form, but the generator always gets a key as a
+ * client sent it, so normalization never changes what the model is asked.
+ */
+public class PopularResponseCache<V> {
+
+    /**
+     * A generated response and the tokens the model spent on it. A response that is not
+     * {@code cacheable}, such as one cut off by the token limit, is served once but never stored.
+     */
+    public record Computed<V>(V value, long tokens, boolean cacheable) {
+
+        public Computed(V value, long tokens) {
+            this(value, tokens, true);
+        }
+    }
+
+    record HotKey(PopularResponseCache<?> cache, String key, String input, long count, long expectedTokens) {
+    }
+
+    /**
+     * A hot-key candidate, with the spelling of its latest request to regenerate it from.
+     */
+    private record Candidate(String input, long count) {
+    }
+
+    private record Entry<V>(V value, long tokens, Instant expiresAt) {
+    }
+
+    private final String name;
+    private final Function<String, Computed<V>> generator;
+    private final CountMinSketch sketch;
+    private final int hotKeys;
+    private final long minCount;
+    private final Duration ttl;
+    private final Clock clock;
+
+    private final Map<String, Entry<V>> entries = new ConcurrentHashMap<>();
+    private final Map<String, Candidate> candidates = new ConcurrentHashMap<>();
+    private final AtomicLong generatedTokens = new AtomicLong();
+    private final AtomicLong generated = new AtomicLong();
+
+    PopularResponseCache(String name, Function<String, Computed<V>> generator, CountMinSketch sketch,
+                         int hotKeys, long minCount, Duration ttl, Clock clock) {
+        this.name = name;
+        this.generator = generator;
+        this.sketch = sketch;
+        this.hotKeys = hotKeys;
+        this.minCount = minCount;
+        this.ttl = ttl;
+        this.clock = clock;
+    }
+
+    public String name() {
+        return name;
+    }
+
+    /**
+     * Counts the request and returns the cached response.
+     *
+     * @return the response, or {@code null} when it has to be generated with {@link #generate}
+     */
+    public V getIfPresent(String key) {
+        String normalized = normalize(key);
+        long count = sketch.add(normalized);
+        // Candidates are trimmed back to hotKeys on every precompute run, the slack lets new keys in between runs
+        if (count >= minCount && (candidates.size() < 2 * hotKeys || candidates.containsKey(normalized))) {
+            candidates.put(normalized, new Candidate(key, count));
+        }
+        Entry<V> entry = entries.get(normalized);
+        return entry != null && entry.expiresAt().isAfter(clock.instant()) ? entry.value() : null;
+    }
+
+    /**
+     * Generates the response live. It is cached when the key is hot.
+     */
+    public V generate(String key) {
+        String normalized = normalize(key);
+        Computed<V> computed = compute(key);
+        if (candidates.containsKey(normalized)) {
+            store(normalized, computed);
+        }
+        return computed.value();
+    }
+
+    /**
+     * Regenerates and caches the response of a hot key.
+     *
+     * @return the tokens spent
+     */
+    long refresh(HotKey hot) {
+        Computed<V> computed = compute(hot.input());
+        store(hot.key(), computed);
+        return computed.tokens();
+    }
+
+    /**
+     * Trims the candidates to the hottest keys and drops the entries of keys that cooled down.
+     *
+     * @return the hot keys whose response is missing or expires before the given instant
+     */
+    List<HotKey> hotKeysDue(Instant refreshBefore) {
+        List<Map.Entry<String, Long>> ranked = new ArrayList<>();
+        for (String key : candidates.keySet()) {
+            long count = sketch.estimate(key);
+            if (count >= minCount) {
+                ranked.add(Map.entry(key, count));
+            }
+            else {
+                candidates.remove(key);
+            }
+        }
+        ranked.sort(Map.Entry.<String, Long>comparingByValue(Comparator.reverseOrder()));
+        for (Map.Entry<String, Long> cold : ranked.subList(Math.min(hotKeys, ranked.size()), ranked.size())) {
+            candidates.remove(cold.getKey());
+        }
+        entries.keySet().removeIf(key -> !candidates.containsKey(key));
+
+        long averageTokens = generated.get() > 0 ? generatedTokens.get() / generated.get() : 0;
+        List<HotKey> due = new ArrayList<>();
+        for (Map.Entry<String, Long> hot : ranked.subList(0, Math.min(hotKeys, ranked.size()))) {
+            Entry<V> entry = entries.get(hot.getKey());
+            Candidate candidate = candidates.get(hot.getKey());
+            if (candidate != null && (entry == null || entry.expiresAt().isBefore(refreshBefore))) {
+                due.add(new HotKey(this, hot.getKey(), candidate.input(), hot.getValue(),
+                        entry != null ? entry.tokens() : averageTokens));
+            }
+        }
+        return due;
+    }
+
+    void decay() {
+        sketch.decay();
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    private Computed<V> compute(String input) {
+        Computed<V> computed = generator.apply(input);
+        generatedTokens.addAndGet(computed.tokens());
+        generated.incrementAndGet();
+        return computed;
+    }
+
+    private void store(String key, Computed<V> computed) {
+        if (computed.cacheable()) {
+            entries.put(key, new Entry<>(computed.value(), computed.tokens(), clock.instant().plus(ttl)));
+        }
+    }
+
+    private static String normalize(String key) {
+        return key.strip().toLowerCase(Locale.ROOT);
+    }
+}
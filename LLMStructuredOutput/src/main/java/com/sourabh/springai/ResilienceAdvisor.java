@@ -0,0 +1,453 @@
+package com.sourabh.springai;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.chat.client.advisor.api.AdvisedRequest;
+import org.springframework.ai.chat.client.advisor.api.AdvisedResponse;
+import org.springframework.ai.chat.client.advisor.api.CallAroundAdvisor;
+import org.springframework.ai.chat.client.advisor.api.CallAroundAdvisorChain;
+import org.springframework.ai.chat.client.advisor.api.StreamAroundAdvisor;
+import org.springframework.ai.chat.client.advisor.api.StreamAroundAdvisorChain;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.retry.NonTransientAiException;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.RestClientResponseException;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Advisor that bounds model calls with a deadline, fails fast through a circuit breaker and
+ * hedges slow calls.
+ * <p>
+ * The first attempt walks the rest of the advisor chain. The chain can only be walked once, so a
+ * hedged attempt repeats what the chat client's own last advisor does and calls the
+ * {@link ChatModel}; this is why the advisor is ordered right before that call. The deadline can
+ * be overridden per request with the {@link #DEADLINE} advisor parameter. A hedged attempt is
+ * only sent once enough latencies have been observed to know the p95.
+ * <p>
+ * Attempts run on a bounded executor. When it is full the call is rejected with 503 rather
+ * than queued without limit, and attempts still running after the deadline or after the other
+ * attempt won are cancelled with an interrupt. Client errors (4xx other than 429) are the
+ * caller's fault and are not counted against the circuit breaker.
+ * <p>
+ * Streamed calls go through the same circuit breaker and deadline, which covers the whole
+ * stream. They are not hedged.
+ */
+public class ResilienceAdvisor implements CallAroundAdvisor, StreamAroundAdvisor {
+
+    public static final String DEADLINE = "resilience_deadline";
+
+    private static final Logger logger = LoggerFactory.getLogger(ResilienceAdvisor.class);
+
+    private final ChatModel chatModel;
+    private final ExecutorService executor;
+    private final Duration defaultDeadline;
+    private final boolean hedgingEnabled;
+    private final Duration minHedgeDelay;
+    private final CircuitBreaker circuitBreaker;
+    private final LatencyWindow latencyWindow;
+
+    private ResilienceAdvisor(Builder builder) {
+        this.chatModel = builder.chatModel;
+        this.executor = builder.executor;
+        this.defaultDeadline = builder.deadline;
+        this.hedgingEnabled = builder.hedgingEnabled;
+        this.minHedgeDelay = builder.minHedgeDelay;
+        this.circuitBreaker = new CircuitBreaker(builder.failureRateThreshold, builder.windowSize, builder.openDuration);
+        this.latencyWindow = new LatencyWindow(builder.windowSize * 10);
+    }
+
+    public static Builder builder(ChatModel chatModel, ExecutorService executor) {
+        return new Builder(chatModel, executor);
+    }
+
+    @Override
+    public String getName() {
+        return getClass().getSimpleName();
+    }
+
+    @Override
+    public int getOrder() {
+        // Right before the model call the chat client appends at LOWEST_PRECEDENCE
+        return Ordered.LOWEST_PRECEDENCE - 1;
+    }
+
+    @Override
+    public AdvisedResponse aroundCall(AdvisedRequest advisedRequest, CallAroundAdvisorChain chain) {
+        acquire();
+
+        Duration deadline = deadline(advisedRequest);
+        long start = System.nanoTime();
+        Attempts<AdvisedResponse> attempts = new Attempts<>(executor);
+        boolean outcomeRecorded = false;
+        try {
+            attempts.start(() -> chain.nextAroundCall(advisedRequest));
+            scheduleHedge(attempts, deadline, () -> new AdvisedResponse(chatModel.call(advisedRequest.toPrompt()),
+                    advisedRequest.adviseContext()));
+
+            AdvisedResponse advisedResponse = attempts.response().get(deadline.toMillis(), TimeUnit.MILLISECONDS);
+            latencyWindow.record(System.nanoTime() - start);
+            circuitBreaker.onSuccess();
+            outcomeRecorded = true;
+            return advisedResponse;
+        }
+        catch (RejectedExecutionException e) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Too many model calls in flight", e);
+        }
+        catch (TimeoutException e) {
+            latencyWindow.record(System.nanoTime() - start);
+            circuitBreaker.onFailure();
+            outcomeRecorded = true;
+            throw new ResponseStatusException(HttpStatus.GATEWAY_TIMEOUT, "Model call did not complete within " + deadline, e);
+        }
+        catch (ExecutionException e) {
+            latencyWindow.record(System.nanoTime() - start);
+            if (!isClientError(e.getCause())) {
+                circuitBreaker.onFailure();
+                outcomeRecorded = true;
+            }
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException("Model call failed", e.getCause());
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the model", e);
+        }
+        finally {
+            if (!outcomeRecorded) {
+                circuitBreaker.release();
+            }
+            attempts.close();
+        }
+    }
+
+    @Override
+    public Flux<AdvisedResponse> aroundStream(AdvisedRequest advisedRequest, StreamAroundAdvisorChain chain) {
+        return Flux.defer(() -> {
+            acquire();
+            Duration deadline = deadline(advisedRequest);
+            long expiresAt = System.nanoTime() + deadline.toNanos();
+            return chain.nextAroundStream(advisedRequest)
+                    .timeout(Mono.delay(deadline),
+                            response -> Mono.delay(Duration.ofNanos(Math.max(0, expiresAt - System.nanoTime()))))
+                    .onErrorMap(TimeoutException.class, e -> new ResponseStatusException(HttpStatus.GATEWAY_TIMEOUT,
+                            "Model stream did not complete within " + deadline, e))
+                    .doOnComplete(circuitBreaker::onSuccess)
+                    .doOnError(this::onStreamError)
+                    .doOnCancel(circuitBreaker::release);
+        });
+    }
+
+    private void acquire() {
+        if (!circuitBreaker.tryAcquire()) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Model calls are failing, circuit breaker is open");
+        }
+    }
+
+    private void onStreamError(Throwable error) {
+        if (isClientError(error)) {
+            circuitBreaker.release();
+        }
+        else {
+            circuitBreaker.onFailure();
+        }
+    }
+
+    /**
+     * Whether the call failed because of the request rather than the upstream. Rate limiting (429)
+     * is upstream saturation and counts as a failure.
+     */
+    static boolean isClientError(Throwable error) {
+        if (error instanceof RestClientResponseException responseException) {
+            return responseException.getStatusCode().is4xxClientError()
+                    && responseException.getStatusCode().value() != HttpStatus.TOO_MANY_REQUESTS.value();
+        }
+        if (error instanceof ResponseStatusException statusException) {
+            return statusException.getStatusCode().is4xxClientError()
+                    && statusException.getStatusCode().value() != HttpStatus.TOO_MANY_REQUESTS.value();
+        }
+        // Spring AI reports every 4xx from the provider as "<status> - <body>"
+        return error instanceof NonTransientAiException
+                && (error.getMessage() == null || !error.getMessage().startsWith(HttpStatus.TOO_MANY_REQUESTS.value() + " "));
+    }
+
+    private Duration deadline(AdvisedRequest advisedRequest) {
+        Object deadline = advisedRequest.advisorParams().getOrDefault(DEADLINE, advisedRequest.adviseContext().get(DEADLINE));
+        return deadline instanceof Duration duration ? duration : defaultDeadline;
+    }
+
+    private <T> void scheduleHedge(Attempts<T> attempts, Duration deadline, Supplier<T> hedge) {
+        if (!hedgingEnabled) {
+            return;
+        }
+        long p95 = latencyWindow.percentile(0.95);
+        if (p95 < 0) {
+            return;
+        }
+        long hedgeDelay = Math.max(minHedgeDelay.toMillis(), TimeUnit.NANOSECONDS.toMillis(p95));
+        if (hedgeDelay >= deadline.toMillis()) {
+            return;
+        }
+        CompletableFuture.delayedExecutor(hedgeDelay, TimeUnit.MILLISECONDS).execute(() -> {
+            try {
+                if (attempts.start(hedge)) {
+                    logger.debug("Model call slower than {} ms, sent hedged request", hedgeDelay);
+                }
+            }
+            catch (RejectedExecutionException e) {
+                // No capacity for a hedge, the primary attempt carries on alone
+                logger.debug("No capacity for a hedged request", e);
+            }
+        });
+    }
+
+    CircuitBreaker.State circuitState() {
+        return circuitBreaker.state();
+    }
+
+    /**
+     * The attempts of one call, completing {@link #response()} with the first success or, once
+     * every attempt has failed, with the last failure. Starting an attempt and closing are guarded
+     * by the same lock, so a hedge that fires late can never start after {@link #close()} has
+     * cancelled the others.
+     */
+    static class Attempts<T> {
+
+        private final ExecutorService executor;
+        private final CompletableFuture<T> response = new CompletableFuture<>();
+        private final List<Future<?>> running = new ArrayList<>();
+        private int pending;
+        private boolean closed;
+
+        Attempts(ExecutorService executor) {
+            this.executor = executor;
+        }
+
+        CompletableFuture<T> response() {
+            return response;
+        }
+
+        /**
+         * @return false when the call has already completed or been closed and no attempt was started
+         * @throws RejectedExecutionException when the executor is full
+         */
+        synchronized boolean start(Supplier<T> attempt) {
+            if (closed || response.isDone()) {
+                return false;
+            }
+            running.add(executor.submit(() -> {
+                try {
+                    response.complete(attempt.get());
+                }
+                catch (RuntimeException e) {
+                    failed(e);
+                }
+            }));
+            pending++;
+            return true;
+        }
+
+        private synchronized void failed(RuntimeException error) {
+            if (--pending == 0) {
+                response.completeExceptionally(error);
+            }
+        }
+
+        /**
+         * Stops any hedge that has not started yet and interrupts the attempts still running.
+         */
+        synchronized void close() {
+            closed = true;
+            response.cancel(false);
+            running.forEach(attempt -> attempt.cancel(true));
+        }
+    }
+
+    public static class Builder {
+
+        private final ChatModel chatModel;
+        private final ExecutorService executor;
+        private Duration deadline = Duration.ofSeconds(30);
+        private boolean hedgingEnabled = true;
+        private Duration minHedgeDelay = Duration.ofSeconds(1);
+        private double failureRateThreshold = 0.5;
+        private int windowSize = 20;
+        private Duration openDuration = Duration.ofSeconds(30);
+
+        private Builder(ChatModel chatModel, ExecutorService executor) {
+            this.chatModel = chatModel;
+            this.executor = executor;
+        }
+
+        public Builder deadline(Duration deadline) {
+            this.deadline = deadline;
+            return this;
+        }
+
+        public Builder hedging(boolean enabled, Duration minHedgeDelay) {
+            this.hedgingEnabled = enabled;
+            this.minHedgeDelay = minHedgeDelay;
+            return this;
+        }
+
+        public Builder circuitBreaker(double failureRateThreshold, int windowSize, Duration openDuration) {
+            this.failureRateThreshold = failureRateThreshold;
+            this.windowSize = windowSize;
+            this.openDuration = openDuration;
+            return this;
+        }
+
+        public ResilienceAdvisor build() {
+            return new ResilienceAdvisor(this);
+        }
+    }
+
+    /**
+     * Count-based circuit breaker. Opens when the failure rate over the last {@code windowSize}
+     * calls reaches the threshold, lets a single trial call through after {@code openDuration}
+     * and closes again once that call succeeds. A call without an outcome, such as one rejected
+     * or interrupted, only gives up its trial permit.
+     */
+    static class CircuitBreaker {
+
+        enum State { CLOSED, OPEN, HALF_OPEN }
+
+        private final double failureRateThreshold;
+        private final boolean[] outcomes;
+        private final long openDurationNanos;
+        private State state = State.CLOSED;
+        private int recorded;
+        private int failures;
+        private int next;
+        private long openedAt;
+        private boolean trialInFlight;
+
+        CircuitBreaker(double failureRateThreshold, int windowSize, Duration openDuration) {
+            this.failureRateThreshold = failureRateThreshold;
+            this.outcomes = new boolean[windowSize];
+            this.openDurationNanos = openDuration.toNanos();
+        }
+
+        synchronized boolean tryAcquire() {
+            if (state == State.OPEN && System.nanoTime() - openedAt >= openDurationNanos) {
+                state = State.HALF_OPEN;
+                trialInFlight = false;
+            }
+            if (state == State.HALF_OPEN) {
+                if (trialInFlight) {
+                    return false;
+                }
+                trialInFlight = true;
+                return true;
+            }
+            return state == State.CLOSED;
+        }
+
+        synchronized void onSuccess() {
+            if (state == State.HALF_OPEN) {
+                reset();
+                return;
+            }
+            record(false);
+        }
+
+        synchronized void onFailure() {
+            if (state == State.HALF_OPEN) {
+                open();
+                return;
+            }
+            record(true);
+            if (recorded == outcomes.length && failures >= failureRateThreshold * recorded) {
+                open();
+            }
+        }
+
+        synchronized void release() {
+            if (state == State.HALF_OPEN) {
+                trialInFlight = false;
+            }
+        }
+
+        synchronized State state() {
+            return state;
+        }
+
+        private void record(boolean failure) {
+            if (recorded == outcomes.length) {
+                failures -= outcomes[next] ? 1 : 0;
+            }
+            else {
+                recorded++;
+            }
+            outcomes[next] = failure;
+            failures += failure ? 1 : 0;
+            next = (next + 1) % outcomes.length;
+        }
+
+        private void open() {
+            logger.warn("Opening circuit breaker for model calls for {} ms", TimeUnit.NANOSECONDS.toMillis(openDurationNanos));
+            state = State.OPEN;
+            openedAt = System.nanoTime();
+        }
+
+        private void reset() {
+            state = State.CLOSED;
+            recorded = 0;
+            failures = 0;
+            next = 0;
+            Arrays.fill(outcomes, false);
+        }
+    }
+
+    /**
+     * Ring buffer of the most recent call latencies, used to derive the hedge delay. Failed and
+     * timed out calls are included, so a slow failing upstream does not make hedges fire early.
+     */
+    static class LatencyWindow {
+
+        private static final int MIN_SAMPLES = 20;
+
+        private final long[] samples;
+        private int count;
+        private int next;
+
+        LatencyWindow(int size) {
+            this.samples = new long[size];
+        }
+
+        synchronized void record(long latencyNanos) {
+            samples[next] = latencyNanos;
+            next = (next + 1) % samples.length;
+            count = Math.min(count + 1, samples.length);
+        }
+
+        /**
+         * @return the latency at the given percentile in nanos, or -1 while there are too few samples
+         */
+        synchronized long percentile(double percentile) {
+            if (count < MIN_SAMPLES) {
+                return -1;
+            }
+            long[] sorted = Arrays.copyOf(samples, count);
+            Arrays.sort(sorted);
+            return sorted[(int) Math.ceil(percentile * count) - 1];
+        }
+    }
+}
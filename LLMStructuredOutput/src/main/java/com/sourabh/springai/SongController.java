@@ -1,40 +1,100 @@
 package com.sourabh.springai;
 
+import com.sourabh.structured.JsonSchemaOutputConverter;
 import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.metadata.Usage;
 import org.springframework.ai.chat.model.ChatResponse;
 import org.springframework.ai.chat.prompt.Prompt;
 import org.springframework.ai.chat.prompt.PromptTemplate;
-import org.springframework.ai.converter.ListOutputConverter;
-import org.springframework.core.convert.support.DefaultConversionService;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.springframework.aot.hint.annotation.RegisterReflectionForBinding;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.ImportRuntimeHints;
+import org.springframework.core.io.Resource;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
+import java.time.Duration;
 import java.util.List;
 import java.util.Map;
 
 @RestController
+@RegisterReflectionForBinding(SongList.class)
+@ImportRuntimeHints(SongController.TemplateHints.class)
 public class SongController {
 
     private final ChatClient chatClient;
+    private final PopularResponseCache<List<String>> songsCache;
+    private final JsonSchemaOutputConverter<SongList> songsConverter;
 
-    public SongController(ChatClient.Builder chatClientBuilder) {
+    public SongController(ChatClient.Builder chatClientBuilder, ResponsePrecomputer responsePrecomputer,
+                          @Value("${app.structured-output.native-schema:true}") boolean nativeSchema) {
         this.chatClient = chatClientBuilder.build();
+        // The native schema needs an object at the top level, so the list is wrapped
+        this.songsConverter = new JsonSchemaOutputConverter<>(SongList.class, nativeSchema);
+        this.songsCache = responsePrecomputer.register("songs", this::generateSongs);
     }
 
+    @Value("${app.resilience.songs.deadline:20s}")
+    private Duration songsDeadline;
+
+    @Value("classpath:songs-template.st")
+    private Resource songsTemplate;
+
     @GetMapping("/songs")
-    public List<String> getSongsByArtist(@RequestParam (value ="artist", defaultValue = "Sonu Nigam") String artist){
-        var message = "Please give me list of top 10 songs for the artist {artist}. If you dont know the answer, just say I dont know" +
-                "{format}";
+    public Mono<List<String>> getSongsByArtist(@RequestParam (value ="artist", defaultValue = "Sonu Nigam") String artist){
+        // Popular artists are served from the precomputed cache without a thread hop
+        List<String> cached = songsCache.getIfPresent(artist);
+        if (cached != null) {
+            return Mono.just(cached);
+        }
 
-        ListOutputConverter listOutputParser = new ListOutputConverter(new DefaultConversionService());
+        // The call blocks until the whole list is generated, so keep it off the request threads
+        return Mono.fromCallable(() -> songsCache.generate(artist))
+                .subscribeOn(Schedulers.boundedElastic());
 
-        PromptTemplate promptTemplate = new PromptTemplate(message, Map.of("artist", artist, "format", listOutputParser.getFormat()));
-        Prompt prompt = promptTemplate.create();
+    }
 
-        ChatResponse response = chatClient.prompt(prompt).call().chatResponse();
+    private PopularResponseCache.Computed<List<String>> generateSongs(String artist) {
+        PromptTemplate promptTemplate = new PromptTemplate(songsTemplate);
+        Prompt prompt = new Prompt(promptTemplate.render(Map.of("artist", artist)) + songsConverter.getFormat());
+
+        ChatResponse response = chatClient.prompt(prompt)
+                .options(songsConverter.options())
+                .advisors(advisorSpec -> advisorSpec.param(ResilienceAdvisor.DEADLINE, songsDeadline))
+                .call().chatResponse();
+        List<String> songs = songsConverter.convert(response.getResult().getOutput().getText()).songs();
+        return new PopularResponseCache.Computed<>(songs, totalTokens(response), !JsonSchemaOutputConverter.truncated(response));
+    }
+
+    private static long totalTokens(ChatResponse response) {
+        Usage usage = response.getMetadata() != null ? response.getMetadata().getUsage() : null;
+        Integer totalTokens = usage != null ? usage.getTotalTokens() : null;
+        return totalTokens != null ? totalTokens : 0;
+    }
+
+    @GetMapping(value = "/songs/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<String> streamSongsByArtist(@RequestParam (value ="artist", defaultValue = "Sonu Nigam") String artist){
+        // Same schema as /songs, so the streamed tokens add up to a SongList
+        Prompt prompt = new Prompt(new PromptTemplate(songsTemplate).render(Map.of("artist", artist)) + songsConverter.getFormat());
+        return chatClient.prompt(prompt)
+                .options(songsConverter.options())
+                .advisors(advisorSpec -> advisorSpec.param(ResilienceAdvisor.DEADLINE, songsDeadline))
+                .stream()
+                .content();
+    }
 
-        return listOutputParser.convert(response.getResult().getOutput().getText());
+    static class TemplateHints implements RuntimeHintsRegistrar {
 
+        @Override
+        public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+            hints.resources().registerPattern("songs-template.st");
+        }
     }
 }
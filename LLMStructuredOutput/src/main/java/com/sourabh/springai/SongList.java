@@ -0,0 +1,6 @@
+package com.sourabh.springai;
+
+import java.util.List;
+
+public record SongList(List<String> songs) {
+}
@@ -0,0 +1,303 @@
+package com.sourabh.structured;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.converter.BeanOutputConverter;
+import org.springframework.ai.converter.StructuredOutputConverter;
+import org.springframework.ai.openai.OpenAiChatOptions;
+import org.springframework.ai.openai.api.ResponseFormat;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+
+/**
+ * Structured output through OpenAI's {@code json_schema} response format instead of format
+ * instructions in the prompt.
+ * <p>
+ * With the native schema the model is constrained to the JSON schema of the target type, so
+ * {@link #getFormat()} is empty and the prompt carries no formatting text. Without it (for models
+ * that lack {@code json_schema}), the format instructions of {@link BeanOutputConverter} are used.
+ * Either way the answer is read with a streaming parser from the first place a value of the target
+ * type starts, and output that does not parse gets one local repair pass (code fences, trailing
+ * commas, truncated strings and brackets) rather than another model call. The value must have every
+ * required property, whether it parsed as is or after the repair, and output cut off by the token
+ * limit can be recognized with {@link #truncated(ChatResponse)} so that it is not cached.
+ * <p>
+ * The source is shared with PromptAndOutput, whose build compiles it from this module.
+ */
+public class JsonSchemaOutputConverter<T> implements StructuredOutputConverter<T> {
+
+    private static final ObjectMapper objectMapper = JsonMapper.builder()
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+            .build();
+
+    private final Class<T> type;
+    private final boolean nativeSchema;
+    private final ObjectReader reader;
+    private final BeanOutputConverter<T> beanOutputConverter;
+    private final JsonNode schema;
+    private final char opening;
+    private final ResponseFormat responseFormat;
+
+    public JsonSchemaOutputConverter(Class<T> type, boolean nativeSchema) {
+        this.type = type;
+        this.nativeSchema = nativeSchema;
+        this.reader = objectMapper.readerFor(type);
+        this.beanOutputConverter = new BeanOutputConverter<>(type);
+        this.schema = strictSchema(beanOutputConverter.getJsonSchema());
+        this.opening = "array".equals(schema.path("type").asText()) ? '[' : '{';
+        this.responseFormat = ResponseFormat.builder()
+                .type(ResponseFormat.Type.JSON_SCHEMA)
+                .jsonSchema(ResponseFormat.JsonSchema.builder()
+                        .name(type.getSimpleName())
+                        .schema(schema.toString())
+                        .strict(true)
+                        .build())
+                .build();
+    }
+
+    /**
+     * Whether the model stopped at the token limit, so the answer is cut off even when it repairs.
+     */
+    public static boolean truncated(ChatResponse response) {
+        Generation result = response != null ? response.getResult() : null;
+        return result != null && result.getMetadata() != null
+                && "length".equalsIgnoreCase(result.getMetadata().getFinishReason());
+    }
+
+    /**
+     * Chat options with the response format when the native schema is used, on the default model.
+     */
+    public OpenAiChatOptions options() {
+        OpenAiChatOptions.Builder builder = OpenAiChatOptions.builder();
+        if (nativeSchema) {
+            builder.responseFormat(responseFormat);
+        }
+        return builder.build();
+    }
+
+    @Override
+    public String getFormat() {
+        return nativeSchema ? "" : beanOutputConverter.getFormat();
+    }
+
+    @Override
+    public T convert(String text) {
+        // Only the first place the value can start is tried, as is and then repaired, so an answer
+        // is parsed at most twice however many brackets it holds. Prose before it may still hold
+        // brackets of the other kind, e.g. "see [1]" before an object.
+        int start = text.indexOf(opening);
+        if (start < 0) {
+            throw new IllegalArgumentException("Model output is not a valid " + type.getSimpleName() + ": " + text);
+        }
+        String json = text.substring(start);
+        try {
+            return read(json);
+        }
+        catch (IOException failure) {
+            try {
+                return read(repair(json));
+            }
+            catch (IOException repairFailure) {
+                failure.addSuppressed(repairFailure);
+                throw new IllegalArgumentException("Model output is not a valid " + type.getSimpleName() + ": " + text, failure);
+            }
+        }
+    }
+
+    private T read(String json) throws IOException {
+        // Reads the first JSON value only, text after it is ignored
+        JsonNode value;
+        try (JsonParser parser = objectMapper.getFactory().createParser(json)) {
+            value = objectMapper.readTree(parser);
+        }
+        String missing = value != null ? missingProperty(schema, value, "") : "the value";
+        if (missing != null) {
+            throw new IOException("Output has no value for " + missing);
+        }
+        return reader.readValue(value);
+    }
+
+    /**
+     * The path of the first required property that is absent or null, or {@code null} when there is none.
+     */
+    private static String missingProperty(JsonNode schema, JsonNode value, String path) {
+        if (value.isObject() && schema.get("properties") instanceof ObjectNode properties) {
+            for (JsonNode required : schema.path("required")) {
+                String name = required.asText();
+                JsonNode property = value.get(name);
+                if (property == null || property.isNull()) {
+                    return path + name;
+                }
+                String missing = missingProperty(properties.path(name), property, path + name + ".");
+                if (missing != null) {
+                    return missing;
+                }
+            }
+        }
+        else if (value.isArray() && schema.has("items")) {
+            for (int i = 0; i < value.size(); i++) {
+                String missing = missingProperty(schema.get("items"), value.get(i), path + i + ".");
+                if (missing != null) {
+                    return missing;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static int firstValue(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '{' || c == '[') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Best-effort fix of common defects in model JSON: drops text around the first value and
+     * trailing commas, and closes a truncated string, key or bracket.
+     */
+    static String repair(String text) {
+        int start = firstValue(text);
+        if (start < 0) {
+            return text;
+        }
+        StringBuilder out = new StringBuilder(text.length() + 8);
+        Deque<Character> open = new ArrayDeque<>();
+        boolean inString = false;
+        boolean escaped = false;
+        for (int i = start; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (inString) {
+                out.append(c);
+                if (escaped) {
+                    escaped = false;
+                }
+                else if (c == '\\') {
+                    escaped = true;
+                }
+                else if (c == '"') {
+                    inString = false;
+                }
+                continue;
+            }
+            if (c == '"') {
+                inString = true;
+            }
+            else if (c == '{' || c == '[') {
+                open.push(c == '{' ? '}' : ']');
+            }
+            else if (c == '}' || c == ']') {
+                stripTrailingComma(out);
+                if (open.isEmpty()) {
+                    break;
+                }
+                open.pop();
+                out.append(c);
+                if (open.isEmpty()) {
+                    break;
+                }
+                continue;
+            }
+            out.append(c);
+        }
+
+        if (inString) {
+            if (escaped) {
+                out.setLength(out.length() - 1);
+            }
+            out.append('"');
+        }
+        while (!open.isEmpty()) {
+            char close = open.pop();
+            stripTrailingComma(out);
+            if (close == '}') {
+                completeMember(out);
+            }
+            out.append(close);
+        }
+        return out.toString();
+    }
+
+    private static void stripTrailingComma(StringBuilder out) {
+        int end = lastSignificant(out);
+        if (end >= 0 && out.charAt(end) == ',') {
+            out.setLength(end);
+        }
+    }
+
+    /**
+     * Gives a dangling {@code "key":} a null value and drops a dangling {@code "key"}.
+     */
+    private static void completeMember(StringBuilder out) {
+        int end = lastSignificant(out);
+        if (end < 0) {
+            return;
+        }
+        if (out.charAt(end) == ':') {
+            out.setLength(end + 1);
+            out.append("null");
+        }
+        else if (out.charAt(end) == '"') {
+            int quote = end - 1;
+            while (quote >= 0 && (out.charAt(quote) != '"' || (quote > 0 && out.charAt(quote - 1) == '\\'))) {
+                quote--;
+            }
+            int before = quote - 1;
+            while (before >= 0 && Character.isWhitespace(out.charAt(before))) {
+                before--;
+            }
+            if (before >= 0 && (out.charAt(before) == '{' || out.charAt(before) == ',')) {
+                out.setLength(out.charAt(before) == ',' ? before : before + 1);
+            }
+        }
+    }
+
+    private static int lastSignificant(StringBuilder out) {
+        int i = out.length() - 1;
+        while (i >= 0 && Character.isWhitespace(out.charAt(i))) {
+            i--;
+        }
+        return i;
+    }
+
+    /**
+     * OpenAI strict mode needs every property listed as required, on every object of the schema.
+     */
+    private static JsonNode strictSchema(String jsonSchema) {
+        try {
+            JsonNode schema = objectMapper.readTree(jsonSchema);
+            ((ObjectNode) schema).remove("$schema");
+            requireAllProperties(schema);
+            return schema;
+        }
+        catch (JsonProcessingException e) {
+            throw new IllegalStateException("Invalid generated JSON schema", e);
+        }
+    }
+
+    private static void requireAllProperties(JsonNode node) {
+        if (node instanceof ObjectNode object && object.get("properties") instanceof ObjectNode properties) {
+            var required = object.putArray("required");
+            for (Iterator<String> names = properties.fieldNames(); names.hasNext(); ) {
+                required.add(names.next());
+            }
+        }
+        for (JsonNode child : node) {
+            requireAllProperties(child);
+        }
+    }
+}
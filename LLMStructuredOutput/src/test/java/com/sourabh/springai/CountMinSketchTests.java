@@ -0,0 +1,59 @@
+package com.sourabh.springai;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CountMinSketchTests {
+
+    @Test
+    void estimate_neverUndercountsAndSeparatesHotFromColdKeys() {
+        // Arrange
+        CountMinSketch sketch = new CountMinSketch(256, 4);
+
+        // Act
+        for (int i = 0; i < 500; i++) {
+            sketch.add("adele");
+        }
+        for (int i = 0; i < 2000; i++) {
+            sketch.add("artist-" + i);
+        }
+
+        // Assert
+        assertThat(sketch.estimate("adele")).isGreaterThanOrEqualTo(500).isLessThan(600);
+        assertThat(sketch.estimate("artist-7")).isGreaterThanOrEqualTo(1).isLessThan(100);
+        assertThat(sketch.estimate("never-seen")).isLessThan(100);
+    }
+
+    @Test
+    void estimate_keysWithTheSameStringHashCode_areCountedApart() {
+        // Arrange
+        CountMinSketch sketch = new CountMinSketch(64, 4);
+        assertThat("Aa".hashCode()).isEqualTo("BB".hashCode());
+
+        // Act
+        for (int i = 0; i < 100; i++) {
+            sketch.add("Aa");
+        }
+
+        // Assert
+        assertThat(sketch.estimate("Aa")).isEqualTo(100);
+        assertThat(sketch.estimate("BB")).isZero();
+    }
+
+    @Test
+    void decay_halvesCounts() {
+        // Arrange
+        CountMinSketch sketch = new CountMinSketch(64, 3);
+        for (int i = 0; i < 10; i++) {
+            sketch.add("coldplay");
+        }
+
+        // Act
+        sketch.decay();
+
+        // Assert
+        assertThat(sketch.estimate("coldplay")).isEqualTo(5);
+        assertThat(sketch.add("coldplay")).isEqualTo(6);
+    }
+}
@@ -0,0 +1,166 @@
+package com.sourabh.springai;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ResponsePrecomputerTests {
+
+    private final MutableClock clock = new MutableClock();
+
+    // Artists the fake model was asked for, in order
+    private final List<String> generated = new ArrayList<>();
+
+    @Test
+    void getIfPresent_cachesOnlyHotKeysAndTailGoesLive() {
+        // Arrange
+        PopularResponseCache<String> cache = precomputer(20_000).register("songs", this::generate);
+
+        // Act
+        request(cache, "Adele", 3);
+        request(cache, "obscure band", 1);
+
+        // Assert
+        assertThat(cache.getIfPresent("adele")).isEqualTo("songs by Adele");
+        assertThat(cache.getIfPresent("obscure band")).isNull();
+        assertThat(generated).containsExactly("Adele", "Adele", "Adele", "obscure band");
+    }
+
+    @Test
+    void generate_uncacheableResponse_isServedButNotStored() {
+        // Arrange
+        PopularResponseCache<String> cache = precomputer(20_000).register("songs",
+                key -> new PopularResponseCache.Computed<>("songs by " + key + " that get cut", 100, false));
+        request(cache, "adele", 2);
+
+        // Act
+        String songs = cache.getIfPresent("adele") == null ? cache.generate("adele") : null;
+
+        // Assert
+        assertThat(songs).isEqualTo("songs by adele that get cut");
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    void precompute_refreshesHotKeysBeforeTheyExpire() {
+        // Arrange
+        ResponsePrecomputer precomputer = precomputer(20_000);
+        PopularResponseCache<String> cache = precomputer.register("songs", this::generate);
+        request(cache, "adele", 3);
+        generated.clear();
+
+        // Act
+        clock.advance(Duration.ofMinutes(55));
+        precomputer.precompute();
+        clock.advance(Duration.ofMinutes(10));
+
+        // Assert
+        assertThat(generated).containsExactly("adele");
+        assertThat(cache.getIfPresent("adele")).isEqualTo("songs by adele");
+    }
+
+    @Test
+    void precompute_regeneratesFromTheLatestSpellingOfTheKey() {
+        // Arrange
+        ResponsePrecomputer precomputer = precomputer(20_000);
+        PopularResponseCache<String> cache = precomputer.register("songs", this::generate);
+        request(cache, "adele", 2);
+        request(cache, " Adele ", 1);
+        generated.clear();
+
+        // Act
+        clock.advance(Duration.ofMinutes(55));
+        precomputer.precompute();
+
+        // Assert
+        assertThat(generated).containsExactly(" Adele ");
+    }
+
+    @Test
+    void precompute_spendsTheTokenBudgetOnTheHottestKeysFirst() {
+        // Arrange
+        ResponsePrecomputer precomputer = precomputer(250);
+        PopularResponseCache<String> cache = precomputer.register("songs", this::generate);
+        request(cache, "adele", 3);
+        request(cache, "coldplay", 5);
+        request(cache, "queen", 4);
+        generated.clear();
+
+        // Act
+        clock.advance(Duration.ofHours(2));
+        precomputer.precompute();
+
+        // Assert
+        assertThat(generated).containsExactly("coldplay", "queen");
+        assertThat(cache.getIfPresent("adele")).isNull();
+    }
+
+    @Test
+    void precompute_dropsKeysThatCooledDown() {
+        // Arrange
+        ResponsePrecomputer precomputer = precomputer(20_000);
+        PopularResponseCache<String> cache = precomputer.register("songs", this::generate);
+        request(cache, "adele", 3);
+        generated.clear();
+
+        // Act
+        clock.advance(Duration.ofHours(1));
+        precomputer.precompute(); // refreshes, then halves the counts below min-count
+        precomputer.precompute();
+
+        // Assert
+        assertThat(generated).containsExactly("adele");
+        assertThat(cache.size()).isZero();
+        assertThat(cache.getIfPresent("adele")).isNull();
+    }
+
+    private ResponsePrecomputer precomputer(long tokenBudget) {
+        return new ResponsePrecomputer(1024, 4, 10, 3, Duration.ofHours(1), Duration.ofMinutes(10),
+                tokenBudget, Duration.ofHours(1), clock);
+    }
+
+    private PopularResponseCache.Computed<String> generate(String key) {
+        generated.add(key);
+        return new PopularResponseCache.Computed<>("songs by " + key, 100);
+    }
+
+    private static void request(PopularResponseCache<String> cache, String key, int times) {
+        for (int i = 0; i < times; i++) {
+            if (cache.getIfPresent(key) == null) {
+                cache.generate(key);
+            }
+        }
+    }
+
+    private static class MutableClock extends Clock {
+
+        private Instant now = Instant.parse("2026-01-01T00:00:00Z");
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
@@ -1,22 +1,26 @@
 package com.sourabh.springai;
 
-import com.sourabh.llmstructuredoutput.Song;
-import com.sourabh.llmstructuredoutput.SongController;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.model.ChatModel;
 import org.springframework.ai.chat.model.ChatResponse;
 import org.springframework.ai.chat.model.Generation;
 import org.springframework.ai.chat.prompt.Prompt;
-import org.springframework.ai.converter.ListOutputConverter;
-import org.springframework.core.convert.support.DefaultConversionService; // Keep if ListOutputConverter needs it explicitly
-
-import java.util.Arrays;
-import java.util.Collections;
+import org.springframework.ai.openai.OpenAiChatOptions;
+import org.springframework.ai.openai.api.ResponseFormat;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Flux;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -28,144 +32,90 @@ import static org.mockito.Mockito.*;
 class SongControllerTests {
 
     @Mock
-    private ChatClient.Builder chatClientBuilder;
-
-    @Mock
-    private ChatClient chatClient;
-
-    // Mocks for the fluent API: chatClient.prompt(prompt).call().chatResponse()
-    @Mock
-    private ChatClient.PromptActions promptActions; // Renamed from PromptSpec for clarity if that's the actual type
-    
-    @Mock
-    private ChatClient.CallActions callActions; // Renamed from CallSpec for clarity
-
-    @Mock
-    private ChatResponse chatResponse;
-
-    @Mock
-    private Generation generation;
-    // Note: Spring AI's Generation.getOutput() returns ChatMessage (e.g., AssistantMessage).
-    // ChatCompletionMessage is a concrete implementation often used.
-    // The prompt's "ChatResponse.Result.Output" might be a slight abstraction.
-    // We will mock generation.getOutput().getContent() for the text.
-
-    @Mock
-    private ListOutputConverter listOutputConverter;
+    private ChatModel chatModel;
 
-    @InjectMocks
     private SongController songController;
 
     @BeforeEach
     void setUp() {
-        // Mock the ChatClient.Builder chain
-        when(chatClientBuilder.build()).thenReturn(chatClient);
-
-        // Initialize SongController with the mocked ChatClient.Builder and ListOutputConverter
-        // This is field injection, but if constructor, it would be:
-        songController = new SongController(chatClientBuilder, listOutputConverter);
-        
-        // Mock the fluent API: chatClient.prompt(prompt).call().chatResponse()
-        when(chatClient.prompt(any(Prompt.class))).thenReturn(promptActions);
-        when(promptActions.call()).thenReturn(callActions);
-        when(callActions.chatResponse()).thenReturn(chatResponse);
-        
-        // Common setup for the response chain
-        when(chatResponse.getResult()).thenReturn(generation);
-        // The actual content for generation.getOutput() will be mocked per test method.
+        ResponsePrecomputer precomputer = new ResponsePrecomputer(1024, 4, 10, 2, Duration.ofHours(1),
+                Duration.ofMinutes(10), 20_000, Duration.ofHours(1), Clock.systemUTC());
+        songController = new SongController(ChatClient.builder(chatModel), precomputer, true);
+        ReflectionTestUtils.setField(songController, "songsTemplate",
+                new ByteArrayResource("Top songs of {artist}.".getBytes(StandardCharsets.UTF_8)));
+        ReflectionTestUtils.setField(songController, "songsDeadline", Duration.ofSeconds(20));
     }
 
     @Test
-    void getSongsByArtist_ValidArtist_ReturnsListOfSongs() {
+    void getSongsByArtist_validArtist_returnsTheSongsWithTheSchema() {
         // Arrange
-        String artist = "Taylor Swift";
-        List<String> expectedSongTitles = Arrays.asList("Lover", "Cruel Summer");
-        // Assuming SongController converts List<String> to List<Song> internally.
-        // List<Song> expectedSongs = Arrays.asList(new Song("Lover"), new Song("Cruel Summer"));
-        String mockResponseContent = "Lover\nCruel Summer"; // This is what the LLM would return as a string
-
-        // Mocking the final parts of the chain for this specific test
-        // Assuming getOutput() returns something that has getContent() like AssistantMessage
-        org.springframework.ai.chat.model.AssistantMessage assistantMessage = 
-            new org.springframework.ai.chat.model.AssistantMessage(mockResponseContent);
-        when(generation.getOutput()).thenReturn(assistantMessage);
-        
-        when(listOutputConverter.convert(mockResponseContent)).thenReturn(expectedSongTitles);
+        when(chatModel.call(any(Prompt.class))).thenReturn(response("{\"songs\": [\"Lover\", \"Cruel Summer\"]}"));
 
         // Act
-        List<Song> actualSongs = songController.getSongsByArtist(artist);
+        List<String> songs = songController.getSongsByArtist("Taylor Swift").block();
 
         // Assert
-        assertThat(actualSongs).isNotNull();
-        assertThat(actualSongs).hasSize(2);
-        assertThat(actualSongs.get(0).title()).isEqualTo("Lover");
-        assertThat(actualSongs.get(1).title()).isEqualTo("Cruel Summer");
-
-        verify(chatClient).prompt(any(Prompt.class)); // Verify the start of the chain
-        verify(promptActions).call();
-        verify(callActions).chatResponse();
-        verify(listOutputConverter).convert(mockResponseContent);
+        assertThat(songs).containsExactly("Lover", "Cruel Summer");
+        ArgumentCaptor<Prompt> prompt = ArgumentCaptor.forClass(Prompt.class);
+        verify(chatModel).call(prompt.capture());
+        assertThat(prompt.getValue().getContents()).isEqualTo("Top songs of Taylor Swift.");
+        assertThat(prompt.getValue().getOptions()).isInstanceOfSatisfying(OpenAiChatOptions.class,
+                options -> assertThat(options.getResponseFormat().getType()).isEqualTo(ResponseFormat.Type.JSON_SCHEMA));
     }
 
     @Test
-    void getSongsByArtist_ArtistNotFoundOrEmptyResponse_ReturnsEmptyList() {
+    void getSongsByArtist_popularArtist_isServedFromTheCache() {
         // Arrange
-        String artist = "Unknown Artist";
-        String mockResponseContent = ""; // Or "I don't know any songs by that artist."
-
-        org.springframework.ai.chat.model.AssistantMessage assistantMessage =
-            new org.springframework.ai.chat.model.AssistantMessage(mockResponseContent);
-        when(generation.getOutput()).thenReturn(assistantMessage);
-        
-        when(listOutputConverter.convert(mockResponseContent)).thenReturn(Collections.emptyList());
+        when(chatModel.call(any(Prompt.class))).thenReturn(response("{\"songs\": [\"Lover\"]}"));
 
         // Act
-        List<Song> actualSongs = songController.getSongsByArtist(artist);
+        for (int i = 0; i < 3; i++) {
+            songController.getSongsByArtist("Taylor Swift").block();
+        }
 
         // Assert
-        assertThat(actualSongs).isNotNull();
-        assertThat(actualSongs).isEmpty();
-
-        verify(chatClient).prompt(any(Prompt.class));
-        verify(listOutputConverter).convert(mockResponseContent);
+        verify(chatModel, times(2)).call(any(Prompt.class));
     }
 
     @Test
-    void getSongsByArtist_ChatClientError_ThrowsRuntimeException() {
+    void getSongsByArtist_chatModelError_propagates() {
         // Arrange
-        String artist = "Error Prone Artist";
-        // Mocking the error at the .call() stage, but it could be earlier or later in the chain
-        when(chatClient.prompt(any(Prompt.class))).thenReturn(promptActions);
-        when(promptActions.call()).thenThrow(new RuntimeException("ChatClient communication error"));
+        when(chatModel.call(any(Prompt.class))).thenThrow(new RuntimeException("ChatClient communication error"));
 
         // Act & Assert
-        assertThatThrownBy(() -> songController.getSongsByArtist(artist))
+        assertThatThrownBy(() -> songController.getSongsByArtist("Error Prone Artist").block())
                 .isInstanceOf(RuntimeException.class)
                 .hasMessageContaining("ChatClient communication error");
+    }
+
+    @Test
+    void getSongsByArtist_outputWithoutSongs_throwsIllegalArgumentException() {
+        // Arrange
+        when(chatModel.call(any(Prompt.class))).thenReturn(response("I dont know"));
 
-        verify(chatClient).prompt(any(Prompt.class)); // Verify interaction up to the point of failure
-        verify(promptActions).call();
-        verifyNoInteractions(callActions, chatResponse, generation, listOutputConverter); // No further interactions
+        // Act & Assert
+        assertThatThrownBy(() -> songController.getSongsByArtist("Unknown Artist").block())
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("SongList");
     }
 
     @Test
-    void getSongsByArtist_ListOutputConverterError_ThrowsRuntimeException() {
+    void streamSongsByArtist_streamsTheTokensWithTheSchema() {
         // Arrange
-        String artist = "Converter Problem Artist";
-        String mockResponseContent = "Some response that will break the converter";
+        when(chatModel.stream(any(Prompt.class))).thenReturn(Flux.just(response("{\"songs\": "), response("[\"Lover\"]}")));
 
-        org.springframework.ai.chat.model.AssistantMessage assistantMessage =
-            new org.springframework.ai.chat.model.AssistantMessage(mockResponseContent);
-        when(generation.getOutput()).thenReturn(assistantMessage);
-        
-        when(listOutputConverter.convert(mockResponseContent)).thenThrow(new RuntimeException("ListOutputConverter failed"));
+        // Act
+        List<String> tokens = songController.streamSongsByArtist("Taylor Swift").collectList().block();
 
-        // Act & Assert
-        assertThatThrownBy(() -> songController.getSongsByArtist(artist))
-                .isInstanceOf(RuntimeException.class)
-                .hasMessageContaining("ListOutputConverter failed");
+        // Assert
+        assertThat(String.join("", tokens)).isEqualTo("{\"songs\": [\"Lover\"]}");
+        ArgumentCaptor<Prompt> prompt = ArgumentCaptor.forClass(Prompt.class);
+        verify(chatModel).stream(prompt.capture());
+        assertThat(prompt.getValue().getOptions()).isInstanceOfSatisfying(OpenAiChatOptions.class,
+                options -> assertThat(options.getResponseFormat().getType()).isEqualTo(ResponseFormat.Type.JSON_SCHEMA));
+    }
 
-        verify(chatClient).prompt(any(Prompt.class));
-        verify(listOutputConverter).convert(mockResponseContent);
+    private static ChatResponse response(String text) {
+        return new ChatResponse(List.of(new Generation(new AssistantMessage(text))));
     }
 }
@@ -0,0 +1,145 @@
+package com.sourabh.structured;
+
+import com.sourabh.springai.SongList;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.metadata.ChatGenerationMetadata;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.openai.OpenAiChatOptions;
+import org.springframework.ai.openai.api.ResponseFormat;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class JsonSchemaOutputConverterTests {
+
+    private final JsonSchemaOutputConverter<SongList> converter = new JsonSchemaOutputConverter<>(SongList.class, true);
+
+    // An object with several required properties, like the joke answers of PromptAndOutput
+    record Joke(String subject, String joke) {
+    }
+
+    private final JsonSchemaOutputConverter<Joke> jokeConverter = new JsonSchemaOutputConverter<>(Joke.class, true);
+
+    @Test
+    void convert_readsFirstValueAroundProseAndCodeFences() {
+        // Arrange
+        String text = """
+                Here are the songs:
+                ```json
+                {"songs": ["Hello", "Skyfall"]}
+                ```
+                Enjoy!""";
+
+        // Act
+        SongList songs = converter.convert(text);
+
+        // Assert
+        assertThat(songs.songs()).containsExactly("Hello", "Skyfall");
+    }
+
+    @Test
+    void convert_skipsBracketsInProseBeforeTheValue() {
+        // Act
+        SongList songs = converter.convert("Her best known songs [1] are: {\"songs\": [\"Hello\", \"Skyfall\"]}");
+
+        // Assert
+        assertThat(songs.songs()).containsExactly("Hello", "Skyfall");
+    }
+
+    @Test
+    void convert_triesOnlyTheFirstPlaceTheValueCanStart() {
+        // Act / Assert
+        assertThatThrownBy(() -> jokeConverter.convert("As the guide says {keep it short}: {\"subject\": \"cats\", \"joke\": \"Purr-fect.\"}"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("Joke");
+    }
+
+    @Test
+    void convert_repairsTrailingCommasAndTruncatedOutput() {
+        // Act / Assert
+        assertThat(converter.convert("{\"songs\": [\"Hello\", \"Skyfall\",],}").songs()).containsExactly("Hello", "Skyfall");
+        assertThat(converter.convert("{\"songs\": [\"Hello\", \"Sky").songs()).containsExactly("Hello", "Sky");
+        assertThat(jokeConverter.convert("{\"subject\": \"owls\", \"joke\": \"Who gives a ho")).isEqualTo(new Joke("owls", "Who gives a ho"));
+    }
+
+    @Test
+    void convert_repairedOutputWithoutARequiredProperty_isRejected() {
+        // Act / Assert
+        assertThatThrownBy(() -> converter.convert("{\"songs\":"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("SongList")
+                .hasStackTraceContaining("Output has no value for songs");
+        assertThatThrownBy(() -> jokeConverter.convert("{\"subject\": \"owls\", \"joke\":"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasStackTraceContaining("Output has no value for joke");
+    }
+
+    @Test
+    void convert_validJsonWithoutARequiredProperty_isRejected() {
+        // Act / Assert
+        assertThatThrownBy(() -> converter.convert("{\"songs\": null}"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasStackTraceContaining("Output has no value for songs");
+        assertThatThrownBy(() -> jokeConverter.convert("{\"subject\": \"owls\"}"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasStackTraceContaining("Output has no value for joke");
+    }
+
+    @Test
+    void convert_rejectsOutputWithoutJson() {
+        // Act / Assert
+        assertThatThrownBy(() -> converter.convert("I dont know"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("SongList");
+    }
+
+    @Test
+    void repair_completesDanglingMembers() {
+        // Act / Assert
+        assertThat(JsonSchemaOutputConverter.repair("{\"subject\": \"owls\", \"joke\":")).isEqualTo("{\"subject\": \"owls\", \"joke\":null}");
+        assertThat(JsonSchemaOutputConverter.repair("{\"subject\": \"owls\", \"jo")).isEqualTo("{\"subject\": \"owls\"}");
+        assertThat(JsonSchemaOutputConverter.repair("[\"a\", [\"b\",")).isEqualTo("[\"a\", [\"b\"]]");
+    }
+
+    @Test
+    void truncated_isTrueOnlyAtTheTokenLimit() {
+        // Act / Assert
+        assertThat(JsonSchemaOutputConverter.truncated(response("LENGTH"))).isTrue();
+        assertThat(JsonSchemaOutputConverter.truncated(response("STOP"))).isFalse();
+        assertThat(JsonSchemaOutputConverter.truncated(null)).isFalse();
+    }
+
+    @Test
+    void options_carryStrictSchemaOnlyWithNativeSchema() {
+        // Act
+        OpenAiChatOptions nativeOptions = converter.options();
+        OpenAiChatOptions promptOptions = new JsonSchemaOutputConverter<>(SongList.class, false).options();
+
+        // Assert
+        ResponseFormat format = nativeOptions.getResponseFormat();
+        assertThat(format.getType()).isEqualTo(ResponseFormat.Type.JSON_SCHEMA);
+        assertThat(format.getJsonSchema().getStrict()).isTrue();
+        assertThat(format.getJsonSchema().getSchema())
+                .containsEntry("required", List.of("songs"))
+                .doesNotContainKey("$schema");
+        assertThat(jokeConverter.options().getResponseFormat().getJsonSchema().getSchema())
+                .containsEntry("required", List.of("joke", "subject"));
+        assertThat(promptOptions.getResponseFormat()).isNull();
+    }
+
+    @Test
+    void getFormat_isEmptyOnlyWithNativeSchema() {
+        // Act / Assert
+        assertThat(converter.getFormat()).isEmpty();
+        assertThat(new JsonSchemaOutputConverter<>(SongList.class, false).getFormat()).contains("JSON Schema");
+    }
+
+    private static ChatResponse response(String finishReason) {
+        return new ChatResponse(List.of(new Generation(new AssistantMessage("{}"),
+                ChatGenerationMetadata.builder().finishReason(finishReason).build())));
+    }
+}
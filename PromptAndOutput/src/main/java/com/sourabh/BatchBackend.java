@@ -0,0 +1,23 @@
+package com.sourabh;
+
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Executes OpenAI Batch-style JSONL files. Each input line is a chat completion request and
+ * each output line carries the response for the request with the same {@code custom_id}.
+ */
+public interface BatchBackend {
+
+    /**
+     * @return the backend's id for the submitted batch
+     */
+    String submit(Path requestFile);
+
+    BatchJob.Status status(String backendBatchId);
+
+    /**
+     * @return the output JSONL lines of a completed batch
+     */
+    List<String> results(String backendBatchId);
+}
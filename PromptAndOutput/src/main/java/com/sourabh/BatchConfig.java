@@ -0,0 +1,45 @@
+package com.sourabh;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.web.client.RestClient;
+
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+@Configuration
+@EnableScheduling
+public class BatchConfig {
+
+    @Bean
+    @ConditionalOnProperty(name = "app.batch.backend", havingValue = "openai", matchIfMissing = true)
+    BatchBackend openAiBatchBackend(RestClient.Builder restClientBuilder,
+                                    @Value("${spring.ai.openai.base-url:https://api.openai.com}") String baseUrl,
+                                    @Value("${spring.ai.openai.api-key}") String apiKey) {
+        return new OpenAiBatchBackend(restClientBuilder, baseUrl, apiKey);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "app.batch.backend", havingValue = "local")
+    BatchBackend localBatchBackend(ChatModel chatModel, ExecutorService localBatchExecutor) {
+        return new LocalBatchBackend(chatModel::call, localBatchExecutor);
+    }
+
+    // Works through one batch at a time, like a backend with a single batch worker
+    @Bean(destroyMethod = "shutdownNow")
+    @ConditionalOnProperty(name = "app.batch.backend", havingValue = "local")
+    ExecutorService localBatchExecutor() {
+        return Executors.newSingleThreadExecutor();
+    }
+
+    @Bean
+    FileBatchStore fileBatchStore(ObjectMapper objectMapper, @Value("${app.batch.work-dir:batch}") Path workDir) {
+        return new FileBatchStore(objectMapper, workDir);
+    }
+}
@@ -0,0 +1,62 @@
+package com.sourabh;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+
+@RestController
+public class BatchController {
+
+    private final BatchJobService batchJobService;
+    private final FileBatchStore batchStore;
+
+    public BatchController(BatchJobService batchJobService, FileBatchStore batchStore) {
+        this.batchJobService = batchJobService;
+        this.batchStore = batchStore;
+    }
+
+    @PostMapping("/batch/songs")
+    public Mono<BatchJob> submitSongs(@RequestBody List<String> artists) {
+        return offload(() -> batchJobService.submit(BatchJob.Kind.SONGS, artists));
+    }
+
+    @PostMapping("/batch/jokes")
+    public Mono<BatchJob> submitJokes(@RequestBody List<String> subjects) {
+        return offload(() -> batchJobService.submit(BatchJob.Kind.JOKES, subjects));
+    }
+
+    @GetMapping("/batch/{jobId}")
+    public Mono<BatchJob> getJob(@PathVariable String jobId) {
+        return offload(() -> findJob(jobId));
+    }
+
+    @GetMapping("/batch/{jobId}/results")
+    public Mono<List<BatchResult>> getResults(@PathVariable String jobId) {
+        return offload(() -> {
+            BatchJob job = findJob(jobId);
+            if (job.status() != BatchJob.Status.COMPLETED) {
+                throw new ResponseStatusException(HttpStatus.CONFLICT, "Batch job " + jobId + " is " + job.status());
+            }
+            return batchStore.results(jobId);
+        });
+    }
+
+    private BatchJob findJob(String jobId) {
+        return batchStore.findJob(jobId)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Unknown batch job " + jobId));
+    }
+
+    // Submitting uploads a file to the batch backend and the store is on disk, so every endpoint blocks
+    private static <T> Mono<T> offload(Callable<T> call) {
+        return Mono.fromCallable(call).subscribeOn(Schedulers.boundedElastic());
+    }
+}
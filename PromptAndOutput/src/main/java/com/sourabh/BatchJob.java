@@ -0,0 +1,25 @@
+package com.sourabh;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * State of one bulk generation job. A job is created when its JSONL files are handed to the
+ * {@link BatchBackend}, one backend batch per file, and is polled until the backend reports
+ * all of them as completed or one of them as failed.
+ */
+public record BatchJob(String id, Kind kind, Status status, List<String> backendBatchIds, int requestCount,
+                       Instant createdAt, Instant finishedAt, String error) {
+
+    public enum Kind { SONGS, JOKES }
+
+    public enum Status { IN_PROGRESS, COMPLETED, FAILED }
+
+    public BatchJob completed() {
+        return new BatchJob(id, kind, Status.COMPLETED, backendBatchIds, requestCount, createdAt, Instant.now(), null);
+    }
+
+    public BatchJob failed(String error) {
+        return new BatchJob(id, kind, Status.FAILED, backendBatchIds, requestCount, createdAt, Instant.now(), error);
+    }
+}
@@ -0,0 +1,219 @@
+package com.sourabh;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.chat.prompt.PromptTemplate;
+import org.springframework.ai.converter.BeanOutputConverter;
+import org.springframework.ai.converter.ListOutputConverter;
+import org.springframework.ai.converter.StructuredOutputConverter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.convert.support.DefaultConversionService;
+import org.springframework.core.io.Resource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+/**
+ * Runs bulk song-list and joke generation through a {@link BatchBackend} instead of one
+ * synchronous chat call per input. Inputs are de-duplicated, and each request's
+ * {@code custom_id} is the index of its input, which is stored with the job. The requests are
+ * split into as many backend batches as the per-batch limits of the OpenAI Batch API require
+ * (50,000 requests and 200 MB per input file). Finished jobs are converted with the same output
+ * converters and prompt templates the interactive endpoints use.
+ */
+@Service
+public class BatchJobService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BatchJobService.class);
+
+    private final BatchBackend batchBackend;
+    private final FileBatchStore batchStore;
+    private final ObjectMapper objectMapper;
+    private final Resource jokeTemplate;
+    private final Resource songsTemplate;
+    private final String model;
+    private final int maxRequestsPerBatch;
+    private final long maxBytesPerBatch;
+
+    private final ListOutputConverter songsConverter = new ListOutputConverter(new DefaultConversionService());
+    private final BeanOutputConverter<JokeResponse> jokeConverter = new BeanOutputConverter<>(JokeResponse.class);
+
+    public BatchJobService(BatchBackend batchBackend, FileBatchStore batchStore, ObjectMapper objectMapper,
+                           @Value("classpath:joke-template.st") Resource jokeTemplate,
+                           @Value("classpath:songs-template.st") Resource songsTemplate,
+                           @Value("${app.batch.model:gpt-4o-mini}") String model,
+                           @Value("${app.batch.max-requests-per-batch:50000}") int maxRequestsPerBatch,
+                           @Value("${app.batch.max-bytes-per-batch:209715200}") long maxBytesPerBatch) {
+        this.batchBackend = batchBackend;
+        this.batchStore = batchStore;
+        this.objectMapper = objectMapper;
+        this.jokeTemplate = jokeTemplate;
+        this.songsTemplate = songsTemplate;
+        this.model = model;
+        this.maxRequestsPerBatch = maxRequestsPerBatch;
+        this.maxBytesPerBatch = maxBytesPerBatch;
+    }
+
+    public BatchJob submit(BatchJob.Kind kind, List<String> inputs) {
+        List<String> distinctInputs = inputs.stream()
+                .filter(Objects::nonNull)
+                .filter(input -> !input.isBlank())
+                .distinct()
+                .toList();
+        if (distinctInputs.isEmpty()) {
+            throw new IllegalArgumentException("A batch needs at least one input");
+        }
+
+        String jobId = UUID.randomUUID().toString();
+        batchStore.saveInputs(jobId, distinctInputs);
+        List<String> requestLines = IntStream.range(0, distinctInputs.size())
+                .mapToObj(index -> BatchJsonl.requestLine(String.valueOf(index), model, prompt(kind, distinctInputs.get(index))))
+                .toList();
+
+        List<String> backendBatchIds = new ArrayList<>();
+        List<List<String>> parts = split(requestLines);
+        for (int part = 0; part < parts.size(); part++) {
+            Path requestFile = batchStore.writeRequests(jobId, part, parts.get(part));
+            backendBatchIds.add(batchBackend.submit(requestFile));
+        }
+        BatchJob job = new BatchJob(jobId, kind, BatchJob.Status.IN_PROGRESS, List.copyOf(backendBatchIds),
+                distinctInputs.size(), Instant.now(), null, null);
+        batchStore.saveJob(job);
+        logger.info("Submitted {} batch {} with {} requests as {}", kind, jobId, distinctInputs.size(), backendBatchIds);
+        return job;
+    }
+
+    /**
+     * Groups request lines into consecutive parts that each stay within the per-batch request
+     * count and file size, counting every line with its line break.
+     */
+    List<List<String>> split(List<String> requestLines) {
+        List<List<String>> parts = new ArrayList<>();
+        List<String> part = new ArrayList<>();
+        long partBytes = 0;
+        for (String line : requestLines) {
+            long lineBytes = line.getBytes(StandardCharsets.UTF_8).length + 1;
+            if (lineBytes > maxBytesPerBatch) {
+                throw new IllegalArgumentException("A batch request of " + lineBytes + " bytes exceeds the "
+                        + maxBytesPerBatch + " bytes allowed per batch");
+            }
+            if (part.size() == maxRequestsPerBatch || partBytes + lineBytes > maxBytesPerBatch) {
+                parts.add(part);
+                part = new ArrayList<>();
+                partBytes = 0;
+            }
+            part.add(line);
+            partBytes += lineBytes;
+        }
+        parts.add(part);
+        return parts;
+    }
+
+    @Scheduled(fixedDelayString = "${app.batch.poll-interval-ms:60000}")
+    public void pollInProgressJobs() {
+        for (BatchJob job : batchStore.findJobs(BatchJob.Status.IN_PROGRESS)) {
+            try {
+                poll(job);
+            }
+            catch (RuntimeException e) {
+                // Polled again on the next run, other jobs are not held up
+                logger.warn("Could not poll batch {}", job.id(), e);
+            }
+        }
+    }
+
+    /**
+     * A job completes once all of its backend batches have, and fails as soon as one of them does.
+     */
+    BatchJob poll(BatchJob job) {
+        BatchJob updated = job;
+        boolean completed = true;
+        for (String backendBatchId : job.backendBatchIds()) {
+            BatchJob.Status status = batchBackend.status(backendBatchId);
+            if (status == BatchJob.Status.FAILED) {
+                updated = job.failed("Batch " + backendBatchId + " failed");
+                break;
+            }
+            completed &= status == BatchJob.Status.COMPLETED;
+        }
+        if (updated == job && completed) {
+            List<String> responseLines = new ArrayList<>();
+            for (String backendBatchId : job.backendBatchIds()) {
+                responseLines.addAll(batchBackend.results(backendBatchId));
+            }
+            batchStore.saveResults(job.id(), convert(job.kind(), batchStore.inputs(job.id()), responseLines));
+            updated = job.completed();
+        }
+        if (updated != job) {
+            batchStore.saveJob(updated);
+            logger.info("Batch {} finished with status {}", job.id(), updated.status());
+        }
+        return updated;
+    }
+
+    /**
+     * One result per input in input order. Responses come back in any order, and an input
+     * without a response line is reported as an error.
+     */
+    private List<BatchResult> convert(BatchJob.Kind kind, List<String> inputs, List<String> responseLines) {
+        StructuredOutputConverter<?> converter = kind == BatchJob.Kind.SONGS ? songsConverter : jokeConverter;
+        BatchResult[] results = new BatchResult[inputs.size()];
+        for (String line : responseLines) {
+            JsonNode response = BatchJsonl.read(line);
+            int index = index(response.path("custom_id").asText(), inputs.size());
+            if (index < 0) {
+                logger.warn("Ignoring batch response with unknown custom_id {}", response.path("custom_id").asText());
+                continue;
+            }
+            results[index] = result(converter, inputs.get(index), response);
+        }
+        for (int i = 0; i < results.length; i++) {
+            if (results[i] == null) {
+                results[i] = new BatchResult(inputs.get(i), null, "No response for this input");
+            }
+        }
+        return Arrays.asList(results);
+    }
+
+    private BatchResult result(StructuredOutputConverter<?> converter, String input, JsonNode response) {
+        String content = BatchJsonl.content(response);
+        if (content == null) {
+            return new BatchResult(input, null, BatchJsonl.error(response));
+        }
+        try {
+            return new BatchResult(input, objectMapper.valueToTree(converter.convert(content)), null);
+        }
+        catch (RuntimeException e) {
+            return new BatchResult(input, null, "Could not convert response: " + e.getMessage());
+        }
+    }
+
+    private static int index(String customId, int inputCount) {
+        try {
+            int index = Integer.parseInt(customId);
+            return index < inputCount ? index : -1;
+        }
+        catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private String prompt(BatchJob.Kind kind, String input) {
+        return switch (kind) {
+            case SONGS -> new PromptTemplate(songsTemplate).render(Map.of("artist", input)) + songsConverter.getFormat();
+            case JOKES -> new PromptTemplate(jokeTemplate).render(Map.of("subject", input)) + "\n" + jokeConverter.getFormat();
+        };
+    }
+}
@@ -0,0 +1,85 @@
+package com.sourabh;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * Reads and writes the lines of OpenAI Batch API input and output files.
+ */
+final class BatchJsonl {
+
+    static final String ENDPOINT = "/v1/chat/completions";
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private BatchJsonl() {
+    }
+
+    static String requestLine(String customId, String model, String userMessage) {
+        ObjectNode line = objectMapper.createObjectNode()
+                .put("custom_id", customId)
+                .put("method", "POST")
+                .put("url", ENDPOINT);
+        ObjectNode body = line.putObject("body").put("model", model);
+        body.putArray("messages").addObject()
+                .put("role", "user")
+                .put("content", userMessage);
+        return line.toString();
+    }
+
+    static String responseLine(String customId, String content) {
+        ObjectNode line = objectMapper.createObjectNode().put("custom_id", customId);
+        ObjectNode response = line.putObject("response").put("status_code", 200);
+        response.putObject("body").putArray("choices").addObject()
+                .putObject("message")
+                .put("role", "assistant")
+                .put("content", content);
+        line.putNull("error");
+        return line.toString();
+    }
+
+    static String errorLine(String customId, String message) {
+        ObjectNode line = objectMapper.createObjectNode().put("custom_id", customId);
+        line.putNull("response");
+        line.putObject("error").put("message", message);
+        return line.toString();
+    }
+
+    static JsonNode read(String line) {
+        try {
+            return objectMapper.readTree(line);
+        }
+        catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Invalid batch JSONL line: " + line, e);
+        }
+    }
+
+    static String userMessage(JsonNode requestLine) {
+        return requestLine.path("body").path("messages").path(0).path("content").asText();
+    }
+
+    /**
+     * Why a request failed. Lines of the error file carry the reason in {@code error}, and
+     * requests the model endpoint rejected carry it in the response body.
+     */
+    static String error(JsonNode responseLine) {
+        String message = responseLine.path("error").path("message").asText(null);
+        if (message == null) {
+            message = responseLine.path("response").path("body").path("error").path("message").asText(null);
+        }
+        return message != null ? message : "Request failed with status " + responseLine.path("response").path("status_code").asInt();
+    }
+
+    /**
+     * @return the assistant message of a response line, or {@code null} when the request failed
+     */
+    static String content(JsonNode responseLine) {
+        JsonNode response = responseLine.path("response");
+        if (response.path("status_code").asInt() != 200) {
+            return null;
+        }
+        return response.path("body").path("choices").path(0).path("message").path("content").asText(null);
+    }
+}
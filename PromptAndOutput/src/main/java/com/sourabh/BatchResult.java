@@ -0,0 +1,11 @@
+package com.sourabh;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * Converted output for one input of a batch job, or the reason it could not be produced.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record BatchResult(String input, JsonNode result, String error) {
+}
@@ -0,0 +1,78 @@
+package com.sourabh;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Approximate request counts per key in fixed memory.
+ * <p>
+ * Every key increments one counter in each of {@code depth} rows, picked by a per-row hash, and
+ * its count is the smallest of those counters. Each row hashes the key's characters with its own
+ * seed, so keys that collide in one row, or share a {@link String#hashCode()}, still differ in the others. Collisions only add to a counter, so an estimate
+ * is never below the true count. {@link #decay()} halves all counters, so counts follow recent
+ * traffic instead of growing for ever.
+ */
+public class CountMinSketch {
+
+    private final int width;
+    private final int depth;
+    private final AtomicLongArray counters;
+
+    public CountMinSketch(int width, int depth) {
+        if (width < 1 || depth < 1) {
+            throw new IllegalArgumentException("Width and depth must be positive");
+        }
+        this.width = width;
+        this.depth = depth;
+        this.counters = new AtomicLongArray(width * depth);
+    }
+
+    /**
+     * Counts one occurrence of the key.
+     *
+     * @return the estimated count including this occurrence
+     */
+    public long add(String key) {
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            estimate = Math.min(estimate, counters.incrementAndGet(index(key, row)));
+        }
+        return estimate;
+    }
+
+    public long estimate(String key) {
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            estimate = Math.min(estimate, counters.get(index(key, row)));
+        }
+        return estimate;
+    }
+
+    public void decay() {
+        for (int i = 0; i < counters.length(); i++) {
+            counters.getAndUpdate(i, count -> count >>> 1);
+        }
+    }
+
+    private int index(String key, int row) {
+        // MurmurHash3 (x86, 32-bit) over the UTF-16 chars, two per block, seeded by the row
+        int h = (row + 1) * 0x9E3779B9;
+        int length = key.length();
+        int i = 0;
+        for (; i + 1 < length; i += 2) {
+            h ^= mixBlock(key.charAt(i) | (key.charAt(i + 1) << 16));
+            h = Integer.rotateLeft(h, 13) * 5 + 0xE6546B64;
+        }
+        if (i < length) {
+            h ^= mixBlock(key.charAt(i));
+        }
+        h ^= length * 2;
+        h = (h ^ (h >>> 16)) * 0x85EBCA6B;
+        h = (h ^ (h >>> 13)) * 0xC2B2AE35;
+        h ^= h >>> 16;
+        return row * width + Integer.remainderUnsigned(h, width);
+    }
+
+    private static int mixBlock(int block) {
+        return Integer.rotateLeft(block * 0xCC9E2D51, 15) * 0x1B873593;
+    }
+}
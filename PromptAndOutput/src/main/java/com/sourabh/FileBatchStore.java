@@ -0,0 +1,141 @@
+package com.sourabh;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Keeps batch jobs on disk so they survive restarts while the backend works on them:
+ * {@code jobs/<id>.json} holds the job state, {@code inputs/<id>.json} the inputs in request
+ * order, {@code requests/<id>-<part>.jsonl} the requests of each submitted backend batch and
+ * {@code results/<id>.jsonl} one converted {@link BatchResult} per line.
+ */
+public class FileBatchStore {
+
+    private final ObjectMapper objectMapper;
+    private final Path jobsDir;
+    private final Path inputsDir;
+    private final Path requestsDir;
+    private final Path resultsDir;
+
+    public FileBatchStore(ObjectMapper objectMapper, Path workDir) {
+        this.objectMapper = objectMapper;
+        this.jobsDir = workDir.resolve("jobs");
+        this.inputsDir = workDir.resolve("inputs");
+        this.requestsDir = workDir.resolve("requests");
+        this.resultsDir = workDir.resolve("results");
+        try {
+            Files.createDirectories(jobsDir);
+            Files.createDirectories(inputsDir);
+            Files.createDirectories(requestsDir);
+            Files.createDirectories(resultsDir);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException("Cannot create batch work directory " + workDir, e);
+        }
+    }
+
+    public void saveInputs(String jobId, List<String> inputs) {
+        try {
+            objectMapper.writeValue(inputsDir.resolve(jobId + ".json").toFile(), inputs);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public List<String> inputs(String jobId) {
+        try {
+            return List.of(objectMapper.readValue(inputsDir.resolve(jobId + ".json").toFile(), String[].class));
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public Path writeRequests(String jobId, int part, List<String> requestLines) {
+        Path requestFile = requestsDir.resolve(jobId + "-" + part + ".jsonl");
+        try {
+            Files.write(requestFile, requestLines);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return requestFile;
+    }
+
+    public void saveJob(BatchJob job) {
+        try {
+            objectMapper.writeValue(jobsDir.resolve(job.id() + ".json").toFile(), job);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public Optional<BatchJob> findJob(String jobId) {
+        Path jobFile = jobsDir.resolve(jobId + ".json");
+        if (!jobsDir.equals(jobFile.getParent()) || !Files.exists(jobFile)) {
+            return Optional.empty();
+        }
+        return Optional.of(readJob(jobFile));
+    }
+
+    public List<BatchJob> findJobs(BatchJob.Status status) {
+        try (Stream<Path> files = Files.list(jobsDir)) {
+            return files.map(this::readJob).filter(job -> job.status() == status).toList();
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public void saveResults(String jobId, List<BatchResult> results) {
+        List<String> lines = new ArrayList<>(results.size());
+        try {
+            for (BatchResult result : results) {
+                lines.add(objectMapper.writeValueAsString(result));
+            }
+            Files.write(resultsDir.resolve(jobId + ".jsonl"), lines);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public List<BatchResult> results(String jobId) {
+        Path resultFile = resultsDir.resolve(jobId + ".jsonl");
+        if (!resultsDir.equals(resultFile.getParent()) || !Files.exists(resultFile)) {
+            return List.of();
+        }
+        try (Stream<String> lines = Files.lines(resultFile)) {
+            return lines.map(line -> {
+                try {
+                    return objectMapper.readValue(line, BatchResult.class);
+                }
+                catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }).toList();
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private BatchJob readJob(Path jobFile) {
+        try {
+            return objectMapper.readValue(jobFile.toFile(), BatchJob.class);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -1,35 +1,91 @@
 package com.sourabh;
 
+import com.sourabh.structured.JsonSchemaOutputConverter;
 import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.client.ResponseEntity;
 import org.springframework.ai.chat.client.advisor.SimpleLoggerAdvisor;
+import org.springframework.ai.chat.metadata.Usage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.chat.prompt.PromptTemplate;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.Resource;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.Map;
 
 @RestController
 public class JokeController {
 
 
     private final ChatClient chatClient;
+    private final PopularResponseCache<JokeResponse> jokeCache;
+    private final JsonSchemaOutputConverter<JokeResponse> jokeConverter;
 
-    public JokeController(ChatClient.Builder chatClientBuilder) {
+    public JokeController(ChatClient.Builder chatClientBuilder, ResponsePrecomputer responsePrecomputer,
+                          @Value("${app.structured-output.native-schema:true}") boolean nativeSchema) {
         this.chatClient = chatClientBuilder.build();
+        this.jokeConverter = new JsonSchemaOutputConverter<>(JokeResponse.class, nativeSchema);
+        this.jokeCache = responsePrecomputer.register("joke", this::generateJoke);
     }
 
     @Value("classpath:joke-template.st")
     private Resource jokeTemplate;
 
+    @Value("${app.resilience.joke.deadline:10s}")
+    private Duration jokeDeadline;
+
     @GetMapping("/joke")
-    public JokeResponse getJoke(@RequestParam String subject){
+    public Mono<JokeResponse> getJoke(@RequestParam String subject){
+
+       // Popular subjects are served from the precomputed cache without a thread hop
+       JokeResponse cached = jokeCache.getIfPresent(subject);
+       if (cached != null) {
+           return Mono.just(cached);
+       }
+
+       // The call blocks until the whole answer is parsed, so keep it off the request threads
+       return Mono.fromCallable(() -> jokeCache.generate(subject))
+               .subscribeOn(Schedulers.boundedElastic());
+
+    }
 
-       return chatClient.prompt().advisors(new SimpleLoggerAdvisor()).user(
+    private PopularResponseCache.Computed<JokeResponse> generateJoke(String subject) {
+        ResponseEntity<ChatResponse, JokeResponse> response = chatClient.prompt().advisors(new SimpleLoggerAdvisor())
+                .options(RoutingChatOptions.of(RoutingProperties.Tier.FAST, jokeConverter.options()))
+                .advisors(advisorSpec -> advisorSpec.param(ResilienceAdvisor.DEADLINE, jokeDeadline))
+                .user(
                 promptUserSpec -> promptUserSpec.text(jokeTemplate)
                         .param("subject", subject))
                 .call()
-                .entity(JokeResponse.class);
+                .responseEntity(jokeConverter);
+        return new PopularResponseCache.Computed<>(response.entity(), totalTokens(response.response()),
+                !JsonSchemaOutputConverter.truncated(response.response()));
+    }
+
+    private static long totalTokens(ChatResponse response) {
+        Usage usage = response != null && response.getMetadata() != null ? response.getMetadata().getUsage() : null;
+        Integer totalTokens = usage != null ? usage.getTotalTokens() : null;
+        return totalTokens != null ? totalTokens : 0;
+    }
+
+    @GetMapping(value = "/joke/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<String> streamJoke(@RequestParam String subject){
 
+        // Same schema as /joke, so the streamed tokens add up to a JokeResponse
+        Prompt prompt = new Prompt(new PromptTemplate(jokeTemplate).render(Map.of("subject", subject)) + jokeConverter.getFormat());
+        return chatClient.prompt(prompt)
+                .options(RoutingChatOptions.of(RoutingProperties.Tier.FAST, jokeConverter.options()))
+                .advisors(advisorSpec -> advisorSpec.param(ResilienceAdvisor.DEADLINE, jokeDeadline))
+                .stream()
+                .content();
     }
 }
@@ -0,0 +1,75 @@
+package com.sourabh;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+
+/**
+ * In-process stand-in for the OpenAI Batch API. Submitting only reads the request file, and
+ * the request lines are answered by the given responder on the executor, so a job stays in
+ * progress until every line has been answered.
+ */
+public class LocalBatchBackend implements BatchBackend {
+
+    private final Function<String, String> responder;
+    private final Executor executor;
+    private final Map<String, CompletableFuture<List<String>>> batches = new ConcurrentHashMap<>();
+
+    public LocalBatchBackend(Function<String, String> responder, Executor executor) {
+        this.responder = responder;
+        this.executor = executor;
+    }
+
+    @Override
+    public String submit(Path requestFile) {
+        List<String> requestLines;
+        try {
+            requestLines = Files.readAllLines(requestFile);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        String batchId = "batch_local_" + UUID.randomUUID();
+        batches.put(batchId, CompletableFuture.supplyAsync(() -> respond(requestLines), executor));
+        return batchId;
+    }
+
+    private List<String> respond(List<String> requestLines) {
+        return requestLines.stream()
+                .map(BatchJsonl::read)
+                .map(request -> {
+                    String customId = request.path("custom_id").asText();
+                    try {
+                        return BatchJsonl.responseLine(customId, responder.apply(BatchJsonl.userMessage(request)));
+                    }
+                    catch (RuntimeException e) {
+                        return BatchJsonl.errorLine(customId, e.getMessage());
+                    }
+                })
+                .toList();
+    }
+
+    @Override
+    public BatchJob.Status status(String backendBatchId) {
+        CompletableFuture<List<String>> batch = batches.get(backendBatchId);
+        if (batch == null || batch.isCompletedExceptionally()) {
+            return BatchJob.Status.FAILED;
+        }
+        return batch.isDone() ? BatchJob.Status.COMPLETED : BatchJob.Status.IN_PROGRESS;
+    }
+
+    @Override
+    public List<String> results(String backendBatchId) {
+        CompletableFuture<List<String>> batch = batches.get(backendBatchId);
+        return batch != null && status(backendBatchId) == BatchJob.Status.COMPLETED ? batch.join() : List.of();
+    }
+}
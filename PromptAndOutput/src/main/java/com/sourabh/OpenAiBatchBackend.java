@@ -0,0 +1,95 @@
+package com.sourabh;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.client.RestClient;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link BatchBackend} on top of the OpenAI Files and Batches endpoints.
+ */
+public class OpenAiBatchBackend implements BatchBackend {
+
+    private final RestClient restClient;
+
+    public OpenAiBatchBackend(RestClient.Builder restClientBuilder, String baseUrl, String apiKey) {
+        this.restClient = restClientBuilder
+                .baseUrl(baseUrl)
+                .defaultHeader(HttpHeaders.AUTHORIZATION, "Bearer " + apiKey)
+                .build();
+    }
+
+    @Override
+    public String submit(Path requestFile) {
+        MultiValueMap<String, Object> form = new LinkedMultiValueMap<>();
+        form.add("purpose", "batch");
+        form.add("file", new FileSystemResource(requestFile));
+
+        JsonNode file = restClient.post()
+                .uri("/v1/files")
+                .contentType(MediaType.MULTIPART_FORM_DATA)
+                .body(form)
+                .retrieve()
+                .body(JsonNode.class);
+
+        JsonNode batch = restClient.post()
+                .uri("/v1/batches")
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(Map.of(
+                        "input_file_id", file.path("id").asText(),
+                        "endpoint", BatchJsonl.ENDPOINT,
+                        "completion_window", "24h"))
+                .retrieve()
+                .body(JsonNode.class);
+        return batch.path("id").asText();
+    }
+
+    @Override
+    public BatchJob.Status status(String backendBatchId) {
+        String status = batch(backendBatchId).path("status").asText();
+        return switch (status) {
+            case "completed" -> BatchJob.Status.COMPLETED;
+            case "failed", "expired", "cancelled" -> BatchJob.Status.FAILED;
+            default -> BatchJob.Status.IN_PROGRESS;
+        };
+    }
+
+    /**
+     * Lines of the output file followed by those of the error file, which holds the requests
+     * OpenAI rejected.
+     */
+    @Override
+    public List<String> results(String backendBatchId) {
+        JsonNode batch = batch(backendBatchId);
+        List<String> lines = new ArrayList<>();
+        lines.addAll(fileLines(batch.path("output_file_id").asText(null)));
+        lines.addAll(fileLines(batch.path("error_file_id").asText(null)));
+        return lines;
+    }
+
+    private List<String> fileLines(String fileId) {
+        if (fileId == null || fileId.isEmpty()) {
+            return List.of();
+        }
+        String content = restClient.get()
+                .uri("/v1/files/{id}/content", fileId)
+                .retrieve()
+                .body(String.class);
+        return content == null ? List.of() : content.lines().filter(line -> !line.isBlank()).toList();
+    }
+
+    private JsonNode batch(String backendBatchId) {
+        return restClient.get()
+                .uri("/v1/batches/{id}", backendBatchId)
+                .retrieve()
+                .body(JsonNode.class);
+    }
+}
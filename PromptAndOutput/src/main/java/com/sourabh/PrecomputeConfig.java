@@ -0,0 +1,25 @@
+package com.sourabh;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Clock;
+import java.time.Duration;
+
+@Configuration
+public class PrecomputeConfig {
+
+    @Bean
+    ResponsePrecomputer responsePrecomputer(@Value("${app.precompute.sketch.width:2048}") int sketchWidth,
+                                            @Value("${app.precompute.sketch.depth:4}") int sketchDepth,
+                                            @Value("${app.precompute.hot-keys:50}") int hotKeys,
+                                            @Value("${app.precompute.min-count:3}") long minCount,
+                                            @Value("${app.precompute.ttl:1h}") Duration ttl,
+                                            @Value("${app.precompute.refresh-ahead:10m}") Duration refreshAhead,
+                                            @Value("${app.precompute.token-budget:20000}") long tokenBudget,
+                                            @Value("${app.precompute.decay-interval:1h}") Duration decayInterval) {
+        return new ResponsePrecomputer(sketchWidth, sketchDepth, hotKeys, minCount, ttl, refreshAhead,
+                tokenBudget, decayInterval, Clock.systemUTC());
+    }
+}
@@ -0,0 +1,24 @@
+package com.sourabh;
+
+import org.springframework.aot.hint.BindingReflectionHintsRegistrar;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+
+/**
+ * Hints for the native image that AOT processing cannot infer from the bean definitions.
+ * <p>
+ * {@code BeanOutputConverter} derives a JSON schema from {@link JokeResponse} and Jackson binds
+ * the model answer to it reflectively, batch jobs and results are read back from files with
+ * Jackson, {@link RoutingChatOptions} are copied bean property by bean property, and the joke
+ * template is loaded from the classpath.
+ */
+class PromptRuntimeHints implements RuntimeHintsRegistrar {
+
+    @Override
+    public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+        new BindingReflectionHintsRegistrar().registerReflectionHints(hints.reflection(),
+                JokeResponse.class, BatchJob.class, BatchResult.class, RoutingChatOptions.class);
+        hints.resources().registerPattern("joke-template.st");
+        hints.resources().registerPattern("songs-template.st");
+    }
+}
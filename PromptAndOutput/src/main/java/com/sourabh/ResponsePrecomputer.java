@@ -0,0 +1,107 @@
+package com.sourabh;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Function;
+
+/**
+ * Keeps the responses of popular keys cached by regenerating them in the background.
+ * <p>
+ * Each run collects the hot keys of every registered {@link PopularResponseCache} whose response
+ * is missing or expires within {@code refreshAhead}. It regenerates them hottest first until the
+ * run's {@code tokenBudget} is spent. A key whose expected cost does not fit is skipped in favour of
+ * cheaper ones. The expected cost is its last response, or the cache average for new keys. The
+ * request counts are halved every {@code decayInterval}.
+ */
+public class ResponsePrecomputer {
+
+    private static final Logger logger = LoggerFactory.getLogger(ResponsePrecomputer.class);
+
+    private final int sketchWidth;
+    private final int sketchDepth;
+    private final int hotKeys;
+    private final long minCount;
+    private final Duration ttl;
+    private final Duration refreshAhead;
+    private final long tokenBudget;
+    private final Duration decayInterval;
+    private final Clock clock;
+
+    private final List<PopularResponseCache<?>> caches = new CopyOnWriteArrayList<>();
+    private Instant nextDecay;
+
+    public ResponsePrecomputer(int sketchWidth, int sketchDepth, int hotKeys, long minCount, Duration ttl,
+                               Duration refreshAhead, long tokenBudget, Duration decayInterval, Clock clock) {
+        if (!refreshAhead.minus(ttl).isNegative()) {
+            throw new IllegalArgumentException("Refresh-ahead must be shorter than the TTL");
+        }
+        this.sketchWidth = sketchWidth;
+        this.sketchDepth = sketchDepth;
+        this.hotKeys = hotKeys;
+        this.minCount = minCount;
+        this.ttl = ttl;
+        this.refreshAhead = refreshAhead;
+        this.tokenBudget = tokenBudget;
+        this.decayInterval = decayInterval;
+        this.clock = clock;
+        this.nextDecay = clock.instant().plus(decayInterval);
+    }
+
+    /**
+     * Creates the cache for one endpoint.
+     *
+     * @param generator generates the response for a key as the client sent it
+     */
+    public <V> PopularResponseCache<V> register(String name, Function<String, PopularResponseCache.Computed<V>> generator) {
+        PopularResponseCache<V> cache = new PopularResponseCache<>(name, generator,
+                new CountMinSketch(sketchWidth, sketchDepth), hotKeys, minCount, ttl, clock);
+        caches.add(cache);
+        return cache;
+    }
+
+    @Scheduled(fixedDelayString = "${app.precompute.interval:1m}")
+    public void precompute() {
+        Instant now = clock.instant();
+        boolean decay = !now.isBefore(nextDecay);
+        if (decay) {
+            nextDecay = now.plus(decayInterval);
+        }
+
+        List<PopularResponseCache.HotKey> due = new ArrayList<>();
+        for (PopularResponseCache<?> cache : caches) {
+            due.addAll(cache.hotKeysDue(now.plus(refreshAhead)));
+            if (decay) {
+                cache.decay();
+            }
+        }
+        due.sort(Comparator.comparingLong(PopularResponseCache.HotKey::count).reversed());
+
+        long spent = 0;
+        int refreshed = 0;
+        for (PopularResponseCache.HotKey hot : due) {
+            if (spent + hot.expectedTokens() > tokenBudget) {
+                continue;
+            }
+            try {
+                spent += hot.cache().refresh(hot);
+                refreshed++;
+            }
+            catch (RuntimeException e) {
+                logger.warn("Could not precompute the {} response for '{}': {}", hot.cache().name(), hot.key(), e.getMessage());
+            }
+        }
+        if (!due.isEmpty()) {
+            logger.info("Precomputed {} of {} due popular responses with {} of {} tokens",
+                    refreshed, due.size(), spent, tokenBudget);
+        }
+    }
+}
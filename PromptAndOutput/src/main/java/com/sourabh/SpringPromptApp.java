@@ -4,12 +4,14 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.annotation.ImportRuntimeHints;
 
 /**
  * Hello world!
  *
  */
 @SpringBootApplication
+@ImportRuntimeHints(PromptRuntimeHints.class)
 public class SpringPromptApp
 {
 
@@ -0,0 +1,280 @@
+package com.sourabh;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.ClassPathResource;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BatchJobServiceTests {
+
+    @TempDir
+    private Path workDir;
+
+    private final ObjectMapper objectMapper = JsonMapper.builder().findAndAddModules().build();
+
+    // Answers for the fake backend, swapped per test
+    private final AtomicReference<Function<String, String>> responder = new AtomicReference<>();
+
+    private static final long MAX_BYTES = 200L * 1024 * 1024;
+
+    private FileBatchStore batchStore;
+    private BatchJobService batchJobService;
+
+    @BeforeEach
+    void setUp() {
+        batchStore = new FileBatchStore(objectMapper, workDir);
+        batchJobService = service(new LocalBatchBackend(prompt -> responder.get().apply(prompt), Runnable::run), 50_000, MAX_BYTES);
+    }
+
+    @Test
+    void submit_songs_writesOpenAiBatchRequestsAndConvertsListResults() throws IOException {
+        // Arrange
+        responder.set(prompt -> prompt.contains("Taylor Swift") ? "Lover, Cruel Summer" : "I dont know");
+
+        // Act
+        BatchJob job = batchJobService.submit(BatchJob.Kind.SONGS, List.of("Taylor Swift", "Unknown Artist", "Taylor Swift"));
+        BatchJob finished = batchJobService.poll(job);
+
+        // Assert
+        assertThat(job.requestCount()).isEqualTo(2);
+        List<String> requestLines = Files.readAllLines(workDir.resolve("requests").resolve(job.id() + "-0.jsonl"));
+        assertThat(requestLines).hasSize(2);
+        JsonNode request = objectMapper.readTree(requestLines.get(0));
+        assertThat(request.path("custom_id").asText()).isEqualTo("0");
+        assertThat(BatchJsonl.userMessage(request)).startsWith("Please give me list of top 10 songs for the artist Taylor Swift.");
+        assertThat(request.path("url").asText()).isEqualTo("/v1/chat/completions");
+        assertThat(request.path("body").path("model").asText()).isEqualTo("gpt-4o-mini");
+
+        assertThat(finished.status()).isEqualTo(BatchJob.Status.COMPLETED);
+        assertThat(batchStore.findJob(job.id())).contains(finished);
+        List<BatchResult> results = batchStore.results(job.id());
+        assertThat(results).extracting(BatchResult::input).containsExactly("Taylor Swift", "Unknown Artist");
+        assertThat(objectMapper.convertValue(results.get(0).result(), List.class)).containsExactly("Lover", "Cruel Summer");
+    }
+
+    @Test
+    void submit_jokes_convertsJokeResponsesAndRecordsFailures() {
+        // Arrange
+        responder.set(prompt -> {
+            if (prompt.contains("dogs")) {
+                throw new IllegalStateException("Model refused");
+            }
+            return "{\"subject\": \"cats\", \"joke\": \"Cats are purrfectly hilarious!\"}";
+        });
+
+        // Act
+        BatchJob job = batchJobService.submit(BatchJob.Kind.JOKES, List.of("cats", "dogs"));
+        batchJobService.pollInProgressJobs();
+
+        // Assert
+        assertThat(batchStore.findJob(job.id())).get().extracting(BatchJob::status).isEqualTo(BatchJob.Status.COMPLETED);
+        List<BatchResult> results = batchStore.results(job.id());
+        assertThat(objectMapper.convertValue(results.get(0).result(), JokeResponse.class))
+                .isEqualTo(new JokeResponse("cats", "Cats are purrfectly hilarious!"));
+        assertThat(results.get(1).result()).isNull();
+        assertThat(results.get(1).error()).contains("Model refused");
+    }
+
+    @Test
+    void submit_noInputs_throwsIllegalArgumentException() {
+        assertThatThrownBy(() -> batchJobService.submit(BatchJob.Kind.SONGS, List.of(" ")))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void submit_nullInputs_areSkipped() {
+        // Arrange
+        responder.set(prompt -> "Lover");
+
+        // Act
+        BatchJob job = batchJobService.submit(BatchJob.Kind.SONGS, Arrays.asList(null, "Taylor Swift"));
+
+        // Assert
+        assertThat(job.requestCount()).isEqualTo(1);
+        assertThat(batchStore.inputs(job.id())).containsExactly("Taylor Swift");
+    }
+
+    @Test
+    void poll_mergesResponsesInInputOrderAndReportsMissingOnes() {
+        // Arrange
+        // Out of order, an error file line and an input the backend never answered
+        BatchBackend batchBackend = new FixedBatchBackend(List.of(
+                BatchJsonl.errorLine("1", "Invalid request"),
+                BatchJsonl.responseLine("0", "Lover, Cruel Summer"),
+                BatchJsonl.responseLine("7", "Ignored")));
+        BatchJobService service = service(batchBackend, 50_000, MAX_BYTES);
+        BatchJob job = service.submit(BatchJob.Kind.SONGS, List.of("Taylor Swift", "Adele", "Unknown Artist"));
+
+        // Act
+        service.poll(job);
+
+        // Assert
+        List<BatchResult> results = batchStore.results(job.id());
+        assertThat(results).extracting(BatchResult::input).containsExactly("Taylor Swift", "Adele", "Unknown Artist");
+        assertThat(objectMapper.convertValue(results.get(0).result(), List.class)).containsExactly("Lover", "Cruel Summer");
+        assertThat(results.get(1).error()).isEqualTo("Invalid request");
+        assertThat(results.get(2).error()).isEqualTo("No response for this input");
+    }
+
+    @Test
+    void pollInProgressJobs_failedPoll_doesNotStopOtherJobs() {
+        // Arrange
+        FixedBatchBackend batchBackend = new FixedBatchBackend(List.of(BatchJsonl.responseLine("0", "Lover")));
+        BatchJobService service = service(batchBackend, 50_000, MAX_BYTES);
+        BatchJob first = service.submit(BatchJob.Kind.SONGS, List.of("Taylor Swift"));
+        BatchJob second = service.submit(BatchJob.Kind.SONGS, List.of("Adele"));
+        batchBackend.failingBatchIds.add(first.backendBatchIds().get(0));
+
+        // Act
+        service.pollInProgressJobs();
+
+        // Assert
+        assertThat(batchStore.findJob(first.id())).get().extracting(BatchJob::status).isEqualTo(BatchJob.Status.IN_PROGRESS);
+        assertThat(batchStore.findJob(second.id())).get().extracting(BatchJob::status).isEqualTo(BatchJob.Status.COMPLETED);
+    }
+
+    @Test
+    void submit_overRequestLimit_splitsRequestsIntoSeveralBatchesOfOneJob() throws IOException {
+        // Arrange
+        responder.set(prompt -> "Lover");
+        BatchJobService service = service(new LocalBatchBackend(prompt -> responder.get().apply(prompt), Runnable::run), 2, MAX_BYTES);
+        List<String> artists = List.of("Taylor Swift", "Adele", "Coldplay", "Drake", "Eminem");
+
+        // Act
+        BatchJob job = service.submit(BatchJob.Kind.SONGS, artists);
+        BatchJob finished = service.poll(job);
+
+        // Assert
+        assertThat(job.backendBatchIds()).hasSize(3).doesNotHaveDuplicates();
+        assertThat(Files.readAllLines(workDir.resolve("requests").resolve(job.id() + "-2.jsonl")))
+                .singleElement()
+                .satisfies(line -> assertThat(objectMapper.readTree(line).path("custom_id").asText()).isEqualTo("4"));
+        assertThat(finished.status()).isEqualTo(BatchJob.Status.COMPLETED);
+        assertThat(batchStore.results(job.id())).extracting(BatchResult::input).containsExactlyElementsOf(artists);
+        assertThat(batchStore.results(job.id())).extracting(BatchResult::error).containsOnlyNulls();
+    }
+
+    @Test
+    void split_keepsEveryBatchFileWithinTheByteLimit() {
+        // Arrange
+        BatchJobService service = service(new FixedBatchBackend(List.of()), 50_000, 10);
+
+        // Act
+        List<List<String>> parts = service.split(List.of("aaaa", "bbbbbb", "cc", "dddd"));
+
+        // Assert
+        assertThat(parts).containsExactly(List.of("aaaa"), List.of("bbbbbb", "cc"), List.of("dddd"));
+        assertThatThrownBy(() -> service.split(List.of("a".repeat(10))))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("11 bytes");
+    }
+
+    @Test
+    void poll_jobWithABatchStillRunning_staysInProgress() throws InterruptedException {
+        // Arrange
+        CountDownLatch answering = new CountDownLatch(1);
+        responder.set(prompt -> {
+            try {
+                answering.await();
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "Lover";
+        });
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            BatchJobService service = service(new LocalBatchBackend(prompt -> responder.get().apply(prompt), executor), 1, MAX_BYTES);
+
+            // Act
+            BatchJob job = service.submit(BatchJob.Kind.SONGS, List.of("Taylor Swift", "Adele"));
+            BatchJob running = service.poll(job);
+            answering.countDown();
+            executor.shutdown();
+            assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+            BatchJob finished = service.poll(job);
+
+            // Assert
+            assertThat(running.status()).isEqualTo(BatchJob.Status.IN_PROGRESS);
+            assertThat(finished.status()).isEqualTo(BatchJob.Status.COMPLETED);
+            assertThat(batchStore.results(job.id())).extracting(BatchResult::input).containsExactly("Taylor Swift", "Adele");
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void poll_oneFailedBatch_failsTheJob() {
+        // Arrange
+        FixedBatchBackend batchBackend = new FixedBatchBackend(List.of(BatchJsonl.responseLine("0", "Lover")));
+        BatchJobService service = service(batchBackend, 1, MAX_BYTES);
+        BatchJob job = service.submit(BatchJob.Kind.SONGS, List.of("Taylor Swift", "Adele"));
+        batchBackend.failedBatchIds.add(job.backendBatchIds().get(1));
+
+        // Act
+        BatchJob finished = service.poll(job);
+
+        // Assert
+        assertThat(finished.status()).isEqualTo(BatchJob.Status.FAILED);
+        assertThat(finished.error()).contains(job.backendBatchIds().get(1));
+    }
+
+    private BatchJobService service(BatchBackend batchBackend, int maxRequestsPerBatch, long maxBytesPerBatch) {
+        return new BatchJobService(batchBackend, batchStore, objectMapper, new ClassPathResource("joke-template.st"),
+                new ClassPathResource("songs-template.st"), "gpt-4o-mini", maxRequestsPerBatch, maxBytesPerBatch);
+    }
+
+    /**
+     * Returns the same response lines for every batch, fails the status call for the batches
+     * listed in {@code failingBatchIds} and reports those in {@code failedBatchIds} as failed.
+     */
+    private static class FixedBatchBackend implements BatchBackend {
+
+        private final List<String> responseLines;
+        private final List<String> failingBatchIds = new ArrayList<>();
+        private final List<String> failedBatchIds = new ArrayList<>();
+        private int submitted;
+
+        FixedBatchBackend(List<String> responseLines) {
+            this.responseLines = responseLines;
+        }
+
+        @Override
+        public String submit(Path requestFile) {
+            return "batch_fixed_" + submitted++;
+        }
+
+        @Override
+        public BatchJob.Status status(String backendBatchId) {
+            if (failingBatchIds.contains(backendBatchId)) {
+                throw new IllegalStateException("Backend unavailable");
+            }
+            return failedBatchIds.contains(backendBatchId) ? BatchJob.Status.FAILED : BatchJob.Status.COMPLETED;
+        }
+
+        @Override
+        public List<String> results(String backendBatchId) {
+            return responseLines;
+        }
+    }
+}
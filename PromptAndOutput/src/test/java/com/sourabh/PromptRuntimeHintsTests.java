@@ -0,0 +1,28 @@
+package com.sourabh;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.predicate.RuntimeHintsPredicates;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PromptRuntimeHintsTests {
+
+    @Test
+    void registerHints_registersBindingHintsForConvertedTypesAndTheJokeTemplate() throws Exception {
+        // Arrange
+        RuntimeHints hints = new RuntimeHints();
+
+        // Act
+        new PromptRuntimeHints().registerHints(hints, getClass().getClassLoader());
+
+        // Assert
+        assertThat(RuntimeHintsPredicates.reflection().onType(JokeResponse.class)).accepts(hints);
+        assertThat(RuntimeHintsPredicates.reflection().onMethod(JokeResponse.class.getMethod("joke"))).accepts(hints);
+        assertThat(RuntimeHintsPredicates.reflection().onType(BatchJob.class)).accepts(hints);
+        assertThat(RuntimeHintsPredicates.reflection().onType(BatchResult.class)).accepts(hints);
+        assertThat(RuntimeHintsPredicates.reflection().onType(RoutingChatOptions.class)).accepts(hints);
+        assertThat(RuntimeHintsPredicates.resource().forResource("joke-template.st")).accepts(hints);
+        assertThat(RuntimeHintsPredicates.resource().forResource("songs-template.st")).accepts(hints);
+    }
+}
@@ -0,0 +1,342 @@
+package com.sourabh;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.ai.chat.client.advisor.api.AdvisedRequest;
+import org.springframework.ai.chat.client.advisor.api.AdvisedResponse;
+import org.springframework.ai.chat.client.advisor.api.CallAroundAdvisorChain;
+import org.springframework.ai.chat.client.advisor.api.StreamAroundAdvisorChain;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.retry.NonTransientAiException;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ResilienceAdvisorTests {
+
+    @Mock
+    private ChatModel chatModel;
+
+    @Mock
+    private AdvisedRequest advisedRequest;
+
+    // Ends the chain the way the chat client's own last advisor does
+    private final CallAroundAdvisorChain chain = request -> new AdvisedResponse(chatModel.call(request.toPrompt()),
+            request.adviseContext());
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    private final ChatResponse chatResponse = new ChatResponse(List.of(new Generation(new AssistantMessage("A joke"))));
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(advisedRequest.toPrompt()).thenReturn(new Prompt("Tell me a joke about cats."));
+        lenient().when(advisedRequest.advisorParams()).thenReturn(Map.of());
+        lenient().when(advisedRequest.adviseContext()).thenReturn(Map.of());
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void aroundCall_success_returnsResponseFromTheRestOfTheChain() {
+        // Arrange
+        AdvisedResponse chainResponse = new AdvisedResponse(chatResponse, Map.of());
+        CallAroundAdvisorChain restOfChain = mock(CallAroundAdvisorChain.class);
+        when(restOfChain.nextAroundCall(advisedRequest)).thenReturn(chainResponse);
+        ResilienceAdvisor advisor = ResilienceAdvisor.builder(chatModel, executor).build();
+
+        // Act
+        AdvisedResponse advisedResponse = advisor.aroundCall(advisedRequest, restOfChain);
+
+        // Assert
+        assertThat(advisedResponse).isSameAs(chainResponse);
+        verifyNoInteractions(chatModel);
+    }
+
+    @Test
+    void aroundCall_slowerThanRequestDeadline_throwsGatewayTimeout() {
+        // Arrange
+        when(advisedRequest.advisorParams()).thenReturn(Map.of(ResilienceAdvisor.DEADLINE, Duration.ofMillis(100)));
+        when(chatModel.call(any(Prompt.class))).thenAnswer(invocation -> {
+            Thread.sleep(1_000);
+            return chatResponse;
+        });
+        ResilienceAdvisor advisor = ResilienceAdvisor.builder(chatModel, executor)
+                .deadline(Duration.ofSeconds(30))
+                .build();
+
+        // Act & Assert
+        assertThatThrownBy(() -> advisor.aroundCall(advisedRequest, chain))
+                .isInstanceOf(ResponseStatusException.class)
+                .extracting(e -> ((ResponseStatusException) e).getStatusCode())
+                .isEqualTo(HttpStatus.GATEWAY_TIMEOUT);
+    }
+
+    @Test
+    void aroundCall_pastDeadline_interruptsRunningAttempt() throws InterruptedException {
+        // Arrange
+        CountDownLatch interrupted = new CountDownLatch(1);
+        when(chatModel.call(any(Prompt.class))).thenAnswer(invocation -> {
+            try {
+                Thread.sleep(10_000);
+            }
+            catch (InterruptedException e) {
+                interrupted.countDown();
+                throw new IllegalStateException(e);
+            }
+            return chatResponse;
+        });
+        ResilienceAdvisor advisor = ResilienceAdvisor.builder(chatModel, executor)
+                .deadline(Duration.ofMillis(100))
+                .build();
+
+        // Act
+        assertThatThrownBy(() -> advisor.aroundCall(advisedRequest, chain)).isInstanceOf(ResponseStatusException.class);
+
+        // Assert
+        assertThat(interrupted.await(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    void aroundCall_executorFull_rejectsWithServiceUnavailableWithoutCountingFailure() throws InterruptedException {
+        // Arrange
+        ThreadPoolExecutor singleThread = new ThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS, new SynchronousQueue<>());
+        CountDownLatch release = new CountDownLatch(1);
+        singleThread.execute(() -> {
+            try {
+                release.await();
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        ResilienceAdvisor advisor = ResilienceAdvisor.builder(chatModel, singleThread)
+                .circuitBreaker(0.5, 1, Duration.ofMinutes(1))
+                .build();
+
+        // Act & Assert
+        try {
+            assertThatThrownBy(() -> advisor.aroundCall(advisedRequest, chain))
+                    .isInstanceOf(ResponseStatusException.class)
+                    .extracting(e -> ((ResponseStatusException) e).getStatusCode())
+                    .isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+            assertThat(advisor.circuitState()).isEqualTo(ResilienceAdvisor.CircuitBreaker.State.CLOSED);
+            verifyNoInteractions(chatModel);
+        }
+        finally {
+            release.countDown();
+            singleThread.shutdownNow();
+        }
+    }
+
+    @Test
+    void aroundCall_clientErrors_doNotOpenCircuit() {
+        // Arrange
+        when(chatModel.call(any(Prompt.class))).thenThrow(new NonTransientAiException("400 - Invalid schema"));
+        ResilienceAdvisor advisor = ResilienceAdvisor.builder(chatModel, executor)
+                .circuitBreaker(0.5, 2, Duration.ofMinutes(1))
+                .build();
+
+        // Act
+        for (int i = 0; i < 4; i++) {
+            assertThatThrownBy(() -> advisor.aroundCall(advisedRequest, chain)).hasMessageContaining("Invalid schema");
+        }
+
+        // Assert
+        assertThat(advisor.circuitState()).isEqualTo(ResilienceAdvisor.CircuitBreaker.State.CLOSED);
+        assertThat(ResilienceAdvisor.isClientError(new NonTransientAiException("429 - Rate limit reached"))).isFalse();
+    }
+
+    @Test
+    void circuitBreaker_releasedTrial_letsNextTrialThrough() {
+        // Arrange
+        ResilienceAdvisor.CircuitBreaker circuitBreaker = new ResilienceAdvisor.CircuitBreaker(0.5, 1, Duration.ZERO);
+        circuitBreaker.onFailure();
+        assertThat(circuitBreaker.tryAcquire()).isTrue();
+        assertThat(circuitBreaker.tryAcquire()).isFalse();
+
+        // Act
+        circuitBreaker.release();
+
+        // Assert
+        assertThat(circuitBreaker.state()).isEqualTo(ResilienceAdvisor.CircuitBreaker.State.HALF_OPEN);
+        assertThat(circuitBreaker.tryAcquire()).isTrue();
+    }
+
+    @Test
+    void aroundCall_failureRateAboveThreshold_opensCircuitAndFailsFast() {
+        // Arrange
+        when(chatModel.call(any(Prompt.class))).thenThrow(new RuntimeException("OpenAI unavailable"));
+        ResilienceAdvisor advisor = ResilienceAdvisor.builder(chatModel, executor)
+                .circuitBreaker(0.5, 4, Duration.ofMinutes(1))
+                .build();
+
+        // Act
+        for (int i = 0; i < 4; i++) {
+            assertThatThrownBy(() -> advisor.aroundCall(advisedRequest, chain)).hasMessageContaining("OpenAI unavailable");
+        }
+
+        // Assert
+        assertThat(advisor.circuitState()).isEqualTo(ResilienceAdvisor.CircuitBreaker.State.OPEN);
+        assertThatThrownBy(() -> advisor.aroundCall(advisedRequest, chain))
+                .isInstanceOf(ResponseStatusException.class)
+                .extracting(e -> ((ResponseStatusException) e).getStatusCode())
+                .isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        verify(chatModel, times(4)).call(any(Prompt.class));
+    }
+
+    @Test
+    void aroundCall_primarySlowerThanP95_hedgedAttemptWins() {
+        // Arrange
+        AtomicInteger calls = new AtomicInteger();
+        when(chatModel.call(any(Prompt.class))).thenAnswer(invocation -> {
+            // The 21st call is the slow primary, everything else answers quickly
+            if (calls.incrementAndGet() == 21) {
+                Thread.sleep(2_000);
+            }
+            return chatResponse;
+        });
+        ResilienceAdvisor advisor = ResilienceAdvisor.builder(chatModel, executor)
+                .hedging(true, Duration.ofMillis(50))
+                .build();
+        for (int i = 0; i < 20; i++) {
+            advisor.aroundCall(advisedRequest, chain);
+        }
+
+        // Act
+        long start = System.nanoTime();
+        AdvisedResponse advisedResponse = advisor.aroundCall(advisedRequest, chain);
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+
+        // Assert
+        assertThat(advisedResponse.response()).isSameAs(chatResponse);
+        assertThat(elapsed).isLessThan(Duration.ofSeconds(1));
+        verify(chatModel, times(22)).call(any(Prompt.class));
+    }
+
+    @Test
+    void aroundCall_slowFailures_countTowardsTheHedgeDelay() {
+        // Arrange
+        AtomicInteger calls = new AtomicInteger();
+        when(chatModel.call(any(Prompt.class))).thenAnswer(invocation -> {
+            // 20 fast failures fill the latency window, then the 21st call is the slow primary
+            int call = calls.incrementAndGet();
+            if (call <= 20) {
+                throw new RuntimeException("OpenAI unavailable");
+            }
+            if (call == 21) {
+                Thread.sleep(2_000);
+            }
+            return chatResponse;
+        });
+        ResilienceAdvisor advisor = ResilienceAdvisor.builder(chatModel, executor)
+                .hedging(true, Duration.ofMillis(50))
+                .circuitBreaker(1.0, 100, Duration.ofMinutes(1))
+                .build();
+        for (int i = 0; i < 20; i++) {
+            assertThatThrownBy(() -> advisor.aroundCall(advisedRequest, chain)).hasMessageContaining("OpenAI unavailable");
+        }
+
+        // Act
+        long start = System.nanoTime();
+        AdvisedResponse advisedResponse = advisor.aroundCall(advisedRequest, chain);
+
+        // Assert
+        assertThat(advisedResponse.response()).isSameAs(chatResponse);
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofSeconds(1));
+    }
+
+    @Test
+    void attempts_closed_startNoFurtherAttempt() {
+        // Arrange
+        ExecutorService tracked = mock(ExecutorService.class);
+        ResilienceAdvisor.Attempts<String> attempts = new ResilienceAdvisor.Attempts<>(tracked);
+
+        // Act
+        attempts.close();
+
+        // Assert
+        assertThat(attempts.start(() -> "late hedge")).isFalse();
+        verifyNoInteractions(tracked);
+    }
+
+    @Test
+    void aroundStream_openCircuit_failsFastWithServiceUnavailable() {
+        // Arrange
+        when(chatModel.call(any(Prompt.class))).thenThrow(new RuntimeException("OpenAI unavailable"));
+        StreamAroundAdvisorChain streamChain = mock(StreamAroundAdvisorChain.class);
+        ResilienceAdvisor advisor = ResilienceAdvisor.builder(chatModel, executor)
+                .circuitBreaker(0.5, 1, Duration.ofMinutes(1))
+                .build();
+        assertThatThrownBy(() -> advisor.aroundCall(advisedRequest, chain)).hasMessageContaining("OpenAI unavailable");
+
+        // Act & Assert
+        assertThatThrownBy(() -> advisor.aroundStream(advisedRequest, streamChain).blockLast())
+                .isInstanceOf(ResponseStatusException.class)
+                .extracting(e -> ((ResponseStatusException) e).getStatusCode())
+                .isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        verifyNoInteractions(streamChain);
+    }
+
+    @Test
+    void aroundStream_slowerThanDeadline_failsWithGatewayTimeoutAndCountsFailure() {
+        // Arrange
+        when(advisedRequest.advisorParams()).thenReturn(Map.of(ResilienceAdvisor.DEADLINE, Duration.ofMillis(200)));
+        AdvisedResponse token = new AdvisedResponse(chatResponse, Map.of());
+        // Each token arrives well within the deadline, the whole stream does not
+        StreamAroundAdvisorChain streamChain = request -> Flux.interval(Duration.ofMillis(50)).map(i -> token);
+        ResilienceAdvisor advisor = ResilienceAdvisor.builder(chatModel, executor)
+                .circuitBreaker(0.5, 1, Duration.ofMinutes(1))
+                .build();
+
+        // Act & Assert
+        assertThatThrownBy(() -> advisor.aroundStream(advisedRequest, streamChain).blockLast())
+                .isInstanceOf(ResponseStatusException.class)
+                .extracting(e -> ((ResponseStatusException) e).getStatusCode())
+                .isEqualTo(HttpStatus.GATEWAY_TIMEOUT);
+        assertThat(advisor.circuitState()).isEqualTo(ResilienceAdvisor.CircuitBreaker.State.OPEN);
+    }
+
+    @Test
+    void aroundStream_completes_streamsEveryResponse() {
+        // Arrange
+        AdvisedResponse token = new AdvisedResponse(chatResponse, Map.of());
+        StreamAroundAdvisorChain streamChain = request -> Flux.just(token, token);
+        ResilienceAdvisor advisor = ResilienceAdvisor.builder(chatModel, executor).build();
+
+        // Act
+        List<AdvisedResponse> responses = advisor.aroundStream(advisedRequest, streamChain).collectList().block();
+
+        // Assert
+        assertThat(responses).containsExactly(token, token);
+        assertThat(advisor.circuitState()).isEqualTo(ResilienceAdvisor.CircuitBreaker.State.CLOSED);
+    }
+}
@@ -0,0 +1,179 @@
+package com.sourabh;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.openai.OpenAiChatOptions;
+import org.springframework.ai.tokenizer.JTokkitTokenCountEstimator;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RoutingChatModelTests {
+
+    @Mock
+    private ChatModel delegate;
+
+    private final ChatResponse chatResponse = new ChatResponse(List.of(new Generation(new AssistantMessage("A joke"))));
+
+    private final RoutingProperties routingProperties = new RoutingProperties(50, false, List.of(
+            new RoutingProperties.Route("gpt-4o-mini", RoutingProperties.Tier.FAST, 16000, 4),
+            new RoutingProperties.Route("gpt-4o", RoutingProperties.Tier.QUALITY, 128000, 4)));
+
+    private RoutingChatModel routingChatModel;
+
+    @BeforeEach
+    void setUp() {
+        routingChatModel = new RoutingChatModel(delegate, new JTokkitTokenCountEstimator(), routingProperties);
+    }
+
+    @Test
+    void call_shortPromptWithoutTier_goesToFastModel() {
+        // Arrange
+        when(delegate.call(any(Prompt.class))).thenReturn(chatResponse);
+
+        // Act
+        ChatResponse response = routingChatModel.call(new Prompt("Tell me a joke about cats."));
+
+        // Assert
+        assertThat(response).isSameAs(chatResponse);
+        assertThat(calledModels()).containsExactly("gpt-4o-mini");
+    }
+
+    @Test
+    void call_qualityTierRequested_goesToQualityModel() {
+        // Arrange
+        when(delegate.call(any(Prompt.class))).thenReturn(chatResponse);
+        Prompt prompt = new Prompt("Tell me a joke about cats.", RoutingChatOptions.of(RoutingProperties.Tier.QUALITY));
+
+        // Act
+        routingChatModel.call(prompt);
+
+        // Assert
+        assertThat(calledModels()).containsExactly("gpt-4o");
+        ArgumentCaptor<Prompt> promptCaptor = ArgumentCaptor.forClass(Prompt.class);
+        verify(delegate).call(promptCaptor.capture());
+        assertThat(promptCaptor.getValue().getOptions()).isExactlyInstanceOf(OpenAiChatOptions.class);
+    }
+
+    @Test
+    void call_longPromptWithoutTier_goesToQualityModel() {
+        // Arrange
+        when(delegate.call(any(Prompt.class))).thenReturn(chatResponse);
+
+        // Act
+        routingChatModel.call(new Prompt("How did the federal reserve rate cut impact asset classes? ".repeat(20)));
+
+        // Assert
+        assertThat(calledModels()).containsExactly("gpt-4o");
+    }
+
+    @Test
+    void call_preferredModelFails_fallsBackWithinTier() {
+        // Arrange
+        routingChatModel = new RoutingChatModel(delegate, new JTokkitTokenCountEstimator(), new RoutingProperties(50, false, List.of(
+                new RoutingProperties.Route("gpt-4o-mini", RoutingProperties.Tier.FAST, 16000, 4),
+                new RoutingProperties.Route("gpt-4.1-mini", RoutingProperties.Tier.FAST, 16000, 4),
+                new RoutingProperties.Route("gpt-4o", RoutingProperties.Tier.QUALITY, 128000, 4))));
+        when(delegate.call(argThat((Prompt prompt) -> prompt != null && "gpt-4o-mini".equals(prompt.getOptions().getModel()))))
+                .thenThrow(new RuntimeException("Rate limit reached for gpt-4o-mini"));
+        when(delegate.call(argThat((Prompt prompt) -> prompt != null && "gpt-4.1-mini".equals(prompt.getOptions().getModel()))))
+                .thenReturn(chatResponse);
+
+        // Act
+        ChatResponse response = routingChatModel.call(new Prompt("Tell me a joke about cats."));
+
+        // Assert
+        assertThat(response).isSameAs(chatResponse);
+        assertThat(calledModels()).containsExactly("gpt-4o-mini", "gpt-4.1-mini");
+    }
+
+    @Test
+    void call_tierFails_doesNotUseOtherTierByDefault() {
+        // Arrange
+        when(delegate.call(any(Prompt.class))).thenThrow(new RuntimeException("OpenAI unavailable"));
+
+        // Act & Assert
+        assertThatThrownBy(() -> routingChatModel.call(new Prompt("Tell me a joke about cats.")))
+                .hasMessageContaining("OpenAI unavailable");
+        assertThat(calledModels()).containsExactly("gpt-4o-mini");
+    }
+
+    @Test
+    void call_crossTierFallbackEnabled_fallsBackToOtherTier() {
+        // Arrange
+        routingChatModel = new RoutingChatModel(delegate, new JTokkitTokenCountEstimator(),
+                new RoutingProperties(50, true, routingProperties.routes()));
+        when(delegate.call(argThat((Prompt prompt) -> prompt != null && "gpt-4o-mini".equals(prompt.getOptions().getModel()))))
+                .thenThrow(new RuntimeException("Rate limit reached for gpt-4o-mini"));
+        when(delegate.call(argThat((Prompt prompt) -> prompt != null && "gpt-4o".equals(prompt.getOptions().getModel()))))
+                .thenReturn(chatResponse);
+
+        // Act
+        ChatResponse response = routingChatModel.call(new Prompt("Tell me a joke about cats."));
+
+        // Assert
+        assertThat(response).isSameAs(chatResponse);
+        assertThat(calledModels()).containsExactly("gpt-4o-mini", "gpt-4o");
+    }
+
+    @Test
+    void candidates_routeWithoutSamples_isScoredAsAverageRoute() {
+        // Arrange
+        routingChatModel = new RoutingChatModel(delegate, new JTokkitTokenCountEstimator(), new RoutingProperties(50, false, List.of(
+                new RoutingProperties.Route("slow", RoutingProperties.Tier.FAST, 16000, 4),
+                new RoutingProperties.Route("cold", RoutingProperties.Tier.FAST, 16000, 4),
+                new RoutingProperties.Route("fast", RoutingProperties.Tier.FAST, 16000, 4))));
+        Prompt prompt = new Prompt("Tell me a joke about cats.");
+        List<RoutingChatModel.Route> routes = routingChatModel.candidates(prompt);
+        routes.get(0).record(900, false);
+        routes.get(2).record(100, false);
+
+        // Act
+        List<String> models = routingChatModel.candidates(prompt).stream().map(route -> route.spec.model()).toList();
+
+        // Assert
+        assertThat(models).containsExactly("fast", "cold", "slow");
+    }
+
+    @Test
+    void stream_releasesPermitAndFallsBackBeforeFirstResponse() {
+        // Arrange
+        routingChatModel = new RoutingChatModel(delegate, new JTokkitTokenCountEstimator(), new RoutingProperties(50, false, List.of(
+                new RoutingProperties.Route("gpt-4o-mini", RoutingProperties.Tier.FAST, 16000, 1),
+                new RoutingProperties.Route("gpt-4.1-mini", RoutingProperties.Tier.FAST, 16000, 1))));
+        when(delegate.stream(argThat((Prompt prompt) -> prompt != null && "gpt-4o-mini".equals(prompt.getOptions().getModel()))))
+                .thenReturn(Flux.error(new RuntimeException("Rate limit reached for gpt-4o-mini")));
+        when(delegate.stream(argThat((Prompt prompt) -> prompt != null && "gpt-4.1-mini".equals(prompt.getOptions().getModel()))))
+                .thenReturn(Flux.just(chatResponse));
+        Prompt prompt = new Prompt("Tell me a joke about cats.");
+
+        // Act
+        List<ChatResponse> responses = routingChatModel.stream(prompt).collectList().block();
+
+        // Assert
+        assertThat(responses).containsExactly(chatResponse);
+        assertThat(routingChatModel.candidates(prompt)).allSatisfy(route -> assertThat(route.permits.availablePermits()).isEqualTo(1));
+    }
+
+    private List<String> calledModels() {
+        ArgumentCaptor<Prompt> promptCaptor = ArgumentCaptor.forClass(Prompt.class);
+        verify(delegate, atLeastOnce()).call(promptCaptor.capture());
+        return promptCaptor.getAllValues().stream().map(prompt -> prompt.getOptions().getModel()).toList();
+    }
+}
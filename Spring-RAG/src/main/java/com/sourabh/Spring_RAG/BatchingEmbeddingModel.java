@@ -0,0 +1,61 @@
+package com.sourabh.Spring_RAG;
+
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@link EmbeddingModel} that splits large requests into batches of at most {@code batchSize}
+ * inputs, so an in-process model never builds one tensor for a whole document.
+ * <p>
+ * Batches run one after another on the calling thread. The ONNX runtime already spreads a
+ * single run over all cores with its intra-op thread pool, so embedding batches in parallel
+ * would only oversubscribe the CPU.
+ */
+public class BatchingEmbeddingModel implements EmbeddingModel {
+
+    private final EmbeddingModel delegate;
+    private final int batchSize;
+
+    public BatchingEmbeddingModel(EmbeddingModel delegate, int batchSize) {
+        this.delegate = delegate;
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public EmbeddingResponse call(EmbeddingRequest request) {
+        List<String> inputs = request.getInstructions();
+        if (inputs.size() <= batchSize) {
+            return delegate.call(request);
+        }
+
+        List<Embedding> embeddings = new ArrayList<>(inputs.size());
+        EmbeddingResponse first = null;
+        for (int from = 0; from < inputs.size(); from += batchSize) {
+            EmbeddingResponse response = delegate.call(new EmbeddingRequest(
+                    inputs.subList(from, Math.min(from + batchSize, inputs.size())), request.getOptions()));
+            if (first == null) {
+                first = response;
+            }
+            for (Embedding embedding : response.getResults()) {
+                embeddings.add(new Embedding(embedding.getOutput(), embeddings.size(), embedding.getMetadata()));
+            }
+        }
+        return new EmbeddingResponse(embeddings, first.getMetadata());
+    }
+
+    @Override
+    public float[] embed(Document document) {
+        return delegate.embed(document);
+    }
+
+    @Override
+    public int dimensions() {
+        return delegate.dimensions();
+    }
+}
@@ -2,10 +2,18 @@ package com.sourabh.Spring_RAG;
 
 import org.springframework.ai.chat.client.ChatClient;
 
-import org.springframework.ai.chat.client.advisor.QuestionAnswerAdvisor;
 import org.springframework.ai.vectorstore.pgvector.PgVectorStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
 
 @RestController
 public class ChatController {
@@ -13,17 +21,52 @@ public class ChatController {
     private final ChatClient chatClient;
     private final PgVectorStore vectorStore;
 
-    public ChatController(ChatClient.Builder chatClientBuilder, PgVectorStore vectorStore) {
+    public ChatController(ChatClient.Builder chatClientBuilder, PgVectorStore vectorStore,
+                          ContextPackingAdvisor contextPackingAdvisor, ConversationMemoryAdvisor conversationMemoryAdvisor) {
         this.vectorStore = vectorStore;
         this.chatClient = chatClientBuilder
-                .defaultAdvisors(new QuestionAnswerAdvisor(vectorStore))
+                .defaultAdvisors(conversationMemoryAdvisor, contextPackingAdvisor)
     .build();
     }
 
+    @Value("${app.resilience.rag.deadline:60s}")
+    private Duration ragDeadline;
+
     @GetMapping("/getAnswerFromRAG")
-    public String chat(){
-        return chatClient.prompt()
+    public Mono<String> chat(@RequestParam(defaultValue = CollectionRegistry.DEFAULT) String collection){
+        // Retrieval and the model call block, so keep them off the request threads
+        return Mono.fromCallable(() -> chatClient.prompt()
+                .options(RoutingChatOptions.of(RoutingProperties.Tier.QUALITY))
+                .advisors(advisorSpec -> advisorSpec.param(ResilienceAdvisor.DEADLINE, ragDeadline)
+                        .param(ContextPackingAdvisor.COLLECTION, collection))
                 .user("How did the federal reserve interest fate cut impacted various asset classes  according to analysis")
-                .call().content();
+                .call().content())
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    @GetMapping("/conversations/{conversationId}")
+    public Mono<String> converse(@PathVariable String conversationId, @RequestParam String question,
+                                 @RequestParam(defaultValue = CollectionRegistry.DEFAULT) String collection) {
+        return Mono.fromCallable(() -> chatClient.prompt()
+                .options(RoutingChatOptions.of(RoutingProperties.Tier.QUALITY))
+                .advisors(advisorSpec -> advisorSpec.param(ResilienceAdvisor.DEADLINE, ragDeadline)
+                        .param(ContextPackingAdvisor.COLLECTION, collection)
+                        .param(ConversationMemoryAdvisor.CONVERSATION_ID, conversationId))
+                .user(question)
+                .call().content())
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    @GetMapping(value = "/conversations/{conversationId}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<String> streamConversation(@PathVariable String conversationId, @RequestParam String question,
+                                           @RequestParam(defaultValue = CollectionRegistry.DEFAULT) String collection) {
+        // ResilienceAdvisor applies the deadline to the whole stream and counts it against the circuit breaker
+        return chatClient.prompt()
+                .options(RoutingChatOptions.of(RoutingProperties.Tier.QUALITY))
+                .advisors(advisorSpec -> advisorSpec.param(ResilienceAdvisor.DEADLINE, ragDeadline)
+                        .param(ContextPackingAdvisor.COLLECTION, collection)
+                        .param(ConversationMemoryAdvisor.CONVERSATION_ID, conversationId))
+                .user(question)
+                .stream().content();
     }
 }
@@ -0,0 +1,99 @@
+package com.sourabh.Spring_RAG;
+
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.ai.vectorstore.pgvector.PgVectorStore;
+import org.springframework.ai.vectorstore.pgvector.autoconfigure.PgVectorStoreProperties;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Vector stores per document collection (tenant).
+ * <p>
+ * Every collection has its own pgvector table, {@code vector_store_<collection>}, with its own
+ * ANN index, so a search only walks the index of the collection it targets. The
+ * {@value #DEFAULT} collection is the auto-configured table. Other tables are created the first
+ * time a document is ingested into them, with the {@code spring.ai.vectorstore.pgvector.*}
+ * settings of the default table.
+ */
+public class CollectionRegistry {
+
+    public static final String DEFAULT = "default";
+
+    private static final Pattern NAME = Pattern.compile("[a-z][a-z0-9_]{0,47}");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final EmbeddingModel embeddingModel;
+    private final PgVectorStoreProperties properties;
+    private final Map<String, VectorStore> stores = new ConcurrentHashMap<>();
+
+    public CollectionRegistry(JdbcTemplate jdbcTemplate, EmbeddingModel embeddingModel, VectorStore defaultStore,
+                              PgVectorStoreProperties properties) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.embeddingModel = embeddingModel;
+        this.properties = properties;
+        this.stores.put(DEFAULT, defaultStore);
+    }
+
+    /**
+     * @throws ResponseStatusException with 400 for an invalid name
+     */
+    public static String validate(String collection) {
+        if (collection == null || !NAME.matcher(collection).matches()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Collection names are lower case letters, digits and underscores, got " + collection);
+        }
+        return collection;
+    }
+
+    /**
+     * Store of a collection that already holds documents, for searching.
+     *
+     * @throws ResponseStatusException with 404 when nothing was ingested into the collection
+     */
+    public VectorStore existing(String collection) {
+        VectorStore store = stores.get(validate(collection));
+        if (store != null) {
+            return store;
+        }
+        Boolean exists = jdbcTemplate.queryForObject("SELECT to_regclass(?) IS NOT NULL", Boolean.class,
+                properties.getSchemaName() + "." + tableName(collection));
+        if (!Boolean.TRUE.equals(exists)) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Unknown collection " + collection);
+        }
+        return getOrCreate(collection);
+    }
+
+    /**
+     * Store of a collection, creating its table and index on first use, for ingestion.
+     */
+    public VectorStore getOrCreate(String collection) {
+        return stores.computeIfAbsent(validate(collection), this::create);
+    }
+
+    PgVectorStore create(String collection) {
+        PgVectorStore.PgVectorStoreBuilder builder = PgVectorStore.builder(jdbcTemplate, embeddingModel)
+                .schemaName(properties.getSchemaName())
+                .vectorTableName(tableName(collection))
+                .idType(properties.getIdType())
+                .indexType(properties.getIndexType())
+                .distanceType(properties.getDistanceType())
+                .maxDocumentBatchSize(properties.getMaxDocumentBatchSize())
+                .initializeSchema(true);
+        if (properties.getDimensions() > 0) {
+            builder.dimensions(properties.getDimensions());
+        }
+        PgVectorStore store = builder.build();
+        store.afterPropertiesSet();
+        return store;
+    }
+
+    static String tableName(String collection) {
+        return "vector_store_" + collection;
+    }
+}
@@ -0,0 +1,43 @@
+package com.sourabh.Spring_RAG;
+
+import com.knuddels.jtokkit.api.EncodingType;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.tokenizer.JTokkitTokenCountEstimator;
+import org.springframework.ai.vectorstore.pgvector.PgVectorStore;
+import org.springframework.ai.vectorstore.pgvector.autoconfigure.PgVectorStoreProperties;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+@Configuration
+public class ContextConfig {
+
+    @Bean
+    ContextPacker contextPacker(@Value("${app.rag.context.token-budget:1500}") int tokenBudget,
+                                @Value("${app.rag.context.mmr-lambda:0.7}") double mmrLambda,
+                                @Value("${app.rag.context.duplicate-threshold:0.9}") double duplicateThreshold,
+                                @Value("${app.rag.context.fallback-sentences:2}") int fallbackSentences) {
+        return new ContextPacker(new JTokkitTokenCountEstimator(EncodingType.O200K_BASE), tokenBudget, mmrLambda, duplicateThreshold, fallbackSentences);
+    }
+
+    @Bean
+    LexicalReranker lexicalReranker() {
+        return new LexicalReranker();
+    }
+
+    @Bean
+    CollectionRegistry collectionRegistry(JdbcTemplate jdbcTemplate, EmbeddingModel embeddingModel, PgVectorStore vectorStore,
+                                          PgVectorStoreProperties vectorStoreProperties) {
+        return new CollectionRegistry(jdbcTemplate, embeddingModel, vectorStore, vectorStoreProperties);
+    }
+
+    @Bean
+    ContextPackingAdvisor contextPackingAdvisor(CollectionRegistry collectionRegistry, LexicalReranker lexicalReranker,
+                                                ContextPacker contextPacker,
+                                                @Value("${app.rag.retrieval.top-k:32}") int topK,
+                                                @Value("${app.rag.rerank.top-n:6}") int topN,
+                                                @Value("${app.rag.retrieval.similarity-threshold:0.0}") double similarityThreshold) {
+        return new ContextPackingAdvisor(collectionRegistry, lexicalReranker, contextPacker, topK, topN, similarityThreshold);
+    }
+}
@@ -0,0 +1,188 @@
+package com.sourabh.Spring_RAG;
+
+import org.springframework.ai.document.Document;
+import org.springframework.ai.tokenizer.TokenCountEstimator;
+
+import java.text.BreakIterator;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Assembles the retrieved chunks that go into the prompt.
+ * <p>
+ * Chunks are first ordered with maximal marginal relevance so near-identical chunks are
+ * dropped, then each chunk is cut down to the sentences that mention the query terms and
+ * finally chunks are added while the token budget lasts. A chunk that does not fit is cut at
+ * the budget, and later, shorter chunks still get the room that is left. Similarity between
+ * chunks is lexical (term-frequency cosine) because the vector store does not return embeddings.
+ */
+public class ContextPacker {
+
+    private static final Set<String> STOP_WORDS = Set.of(
+            "a", "an", "and", "are", "as", "at", "be", "by", "did", "do", "does", "for", "from", "has", "have",
+            "how", "in", "is", "it", "its", "of", "on", "or", "that", "the", "this", "to", "was", "were",
+            "what", "when", "which", "who", "why", "will", "with", "according");
+
+    private final TokenCountEstimator tokenCountEstimator;
+    private final int tokenBudget;
+    private final double mmrLambda;
+    private final double duplicateThreshold;
+    private final int fallbackSentences;
+
+    public ContextPacker(TokenCountEstimator tokenCountEstimator, int tokenBudget, double mmrLambda,
+                         double duplicateThreshold, int fallbackSentences) {
+        this.tokenCountEstimator = tokenCountEstimator;
+        this.tokenBudget = tokenBudget;
+        this.mmrLambda = mmrLambda;
+        this.duplicateThreshold = duplicateThreshold;
+        this.fallbackSentences = fallbackSentences;
+    }
+
+    public List<Document> pack(String query, List<Document> candidates) {
+        Set<String> queryTerms = terms(query).keySet();
+        List<Document> packed = new ArrayList<>();
+        int usedTokens = 0;
+
+        for (Document document : diversify(candidates)) {
+            List<String> sentences = relevantSentences(document.getText(), queryTerms);
+            List<String> kept = new ArrayList<>();
+            for (String sentence : sentences) {
+                int tokens = tokenCountEstimator.estimate(sentence);
+                if (usedTokens + tokens > tokenBudget) {
+                    break;
+                }
+                kept.add(sentence);
+                usedTokens += tokens;
+            }
+            if (!kept.isEmpty()) {
+                packed.add(document.mutate().text(String.join(" ", kept)).build());
+            }
+        }
+        return packed;
+    }
+
+    /**
+     * Maximal marginal relevance ordering. Relevance comes from the retrieval score, or from
+     * the retrieval rank when no score is available.
+     */
+    List<Document> diversify(List<Document> candidates) {
+        int n = candidates.size();
+        List<Map<String, Integer>> vectors = new ArrayList<>(n);
+        double[] relevance = new double[n];
+        for (int i = 0; i < n; i++) {
+            Document document = candidates.get(i);
+            vectors.add(terms(document.getText()));
+            relevance[i] = document.getScore() != null ? document.getScore() : 1.0 - (double) i / n;
+        }
+
+        List<Integer> selected = new ArrayList<>();
+        boolean[] used = new boolean[n];
+        for (int round = 0; round < n; round++) {
+            int best = -1;
+            double bestScore = Double.NEGATIVE_INFINITY;
+            for (int i = 0; i < n; i++) {
+                if (used[i]) {
+                    continue;
+                }
+                double maxSimilarity = 0;
+                for (int j : selected) {
+                    maxSimilarity = Math.max(maxSimilarity, cosine(vectors.get(i), vectors.get(j)));
+                }
+                if (maxSimilarity >= duplicateThreshold) {
+                    used[i] = true;
+                    continue;
+                }
+                double score = mmrLambda * relevance[i] - (1 - mmrLambda) * maxSimilarity;
+                if (score > bestScore) {
+                    bestScore = score;
+                    best = i;
+                }
+            }
+            if (best < 0) {
+                break;
+            }
+            used[best] = true;
+            selected.add(best);
+        }
+        return selected.stream().map(candidates::get).toList();
+    }
+
+    List<String> relevantSentences(String text, Set<String> queryTerms) {
+        List<String> sentences = sentences(text);
+        List<String> relevant = new ArrayList<>();
+        for (String sentence : sentences) {
+            Set<String> sentenceTerms = terms(sentence).keySet();
+            if (sentenceTerms.stream().anyMatch(queryTerms::contains)) {
+                relevant.add(sentence);
+            }
+        }
+        if (relevant.isEmpty()) {
+            // Retrieved for its meaning rather than its wording, keep the opening sentences
+            return sentences.subList(0, Math.min(fallbackSentences, sentences.size()));
+        }
+        return relevant;
+    }
+
+    private static List<String> sentences(String text) {
+        List<String> sentences = new ArrayList<>();
+        BreakIterator iterator = BreakIterator.getSentenceInstance(Locale.ENGLISH);
+        iterator.setText(text);
+        int start = iterator.first();
+        for (int end = iterator.next(); end != BreakIterator.DONE; start = end, end = iterator.next()) {
+            String sentence = text.substring(start, end).strip();
+            if (!sentence.isEmpty()) {
+                sentences.add(sentence);
+            }
+        }
+        return sentences;
+    }
+
+    static Map<String, Integer> terms(String text) {
+        Map<String, Integer> terms = new HashMap<>();
+        for (String token : tokens(text)) {
+            terms.merge(token, 1, Integer::sum);
+        }
+        return terms;
+    }
+
+    /**
+     * Lower-cased words of the text in order, without stop words and single characters.
+     */
+    static List<String> tokens(String text) {
+        List<String> tokens = new ArrayList<>();
+        for (String token : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (token.length() > 1 && !STOP_WORDS.contains(token)) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    static double cosine(Map<String, Integer> a, Map<String, Integer> b) {
+        if (a.isEmpty() || b.isEmpty()) {
+            return 0;
+        }
+        Map<String, Integer> smaller = a.size() <= b.size() ? a : b;
+        Map<String, Integer> larger = smaller == a ? b : a;
+        double dot = 0;
+        for (Map.Entry<String, Integer> entry : smaller.entrySet()) {
+            Integer other = larger.get(entry.getKey());
+            if (other != null) {
+                dot += entry.getValue() * other;
+            }
+        }
+        return dot / (norm(a) * norm(b));
+    }
+
+    private static double norm(Map<String, Integer> vector) {
+        double sum = 0;
+        for (int count : vector.values()) {
+            sum += (double) count * count;
+        }
+        return Math.sqrt(sum);
+    }
+}
@@ -0,0 +1,125 @@
+package com.sourabh.Spring_RAG;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.chat.client.ChatClientRequest;
+import org.springframework.ai.chat.client.ChatClientResponse;
+import org.springframework.ai.chat.client.advisor.api.CallAdvisor;
+import org.springframework.ai.chat.client.advisor.api.CallAdvisorChain;
+import org.springframework.ai.chat.client.advisor.api.CallAroundAdvisorChain;
+import org.springframework.ai.chat.client.advisor.api.StreamAdvisor;
+import org.springframework.ai.chat.client.advisor.api.StreamAdvisorChain;
+import org.springframework.ai.chat.client.advisor.api.StreamAroundAdvisorChain;
+import org.springframework.ai.chat.prompt.PromptTemplate;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.vectorstore.SearchRequest;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Retrieval advisor used in place of {@code QuestionAnswerAdvisor}: it over-fetches candidate
+ * chunks for the user text from the collection named by the {@link #COLLECTION} advisor
+ * parameter (the default collection when absent), keeps the best {@code topN} according to the {@link LexicalReranker},
+ * runs them through the {@link ContextPacker} and adds the packed context to the user message
+ * with the same instructions {@code QuestionAnswerAdvisor} uses.
+ * <p>
+ * The vector store is only reachable over JDBC, so for streaming requests retrieval runs on
+ * the bounded elastic scheduler instead of the event loop.
+ */
+public class ContextPackingAdvisor implements CallAdvisor, StreamAdvisor {
+
+    public static final String RETRIEVED_DOCUMENTS = "qa_retrieved_documents";
+
+    public static final String COLLECTION = "rag_collection";
+
+    private static final Logger logger = LoggerFactory.getLogger(ContextPackingAdvisor.class);
+
+    private static final String CONTEXT_PARAM = "question_answer_context";
+
+    private static final String USER_TEXT_ADVISE = """
+
+            Context information is below, surrounded by ---------------------
+
+            ---------------------
+            {question_answer_context}
+            ---------------------
+
+            Given the context and provided history information and not prior knowledge,
+            reply to the user comment. If the answer is not in the context, inform
+            the user that you can't answer the question.
+            """;
+
+    private final CollectionRegistry collections;
+    private final LexicalReranker reranker;
+    private final ContextPacker contextPacker;
+    private final int topK;
+    private final int topN;
+    private final double similarityThreshold;
+
+    public ContextPackingAdvisor(CollectionRegistry collections, LexicalReranker reranker, ContextPacker contextPacker,
+                                 int topK, int topN, double similarityThreshold) {
+        this.collections = collections;
+        this.reranker = reranker;
+        this.contextPacker = contextPacker;
+        this.topK = topK;
+        this.topN = topN;
+        this.similarityThreshold = similarityThreshold;
+    }
+
+    @Override
+    public String getName() {
+        return getClass().getSimpleName();
+    }
+
+    @Override
+    public int getOrder() {
+        return 0;
+    }
+
+    // M8 still declares the chain parameter with the deprecated type, the chain itself is a CallAdvisorChain
+    @Override
+    @SuppressWarnings("deprecation")
+    public ChatClientResponse adviseCall(ChatClientRequest chatClientRequest, CallAroundAdvisorChain chain) {
+        return ((CallAdvisorChain) chain).nextCall(augment(chatClientRequest));
+    }
+
+    @Override
+    @SuppressWarnings("deprecation")
+    public Flux<ChatClientResponse> adviseStream(ChatClientRequest chatClientRequest, StreamAroundAdvisorChain chain) {
+        return Mono.fromCallable(() -> augment(chatClientRequest))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMapMany(((StreamAdvisorChain) chain)::nextStream);
+    }
+
+    private ChatClientRequest augment(ChatClientRequest chatClientRequest) {
+        String query = chatClientRequest.prompt().getUserMessage().getText();
+        List<Document> candidates = collections.existing(collection(chatClientRequest)).similaritySearch(SearchRequest.builder()
+                .query(query)
+                .topK(topK)
+                .similarityThreshold(similarityThreshold)
+                .build());
+        List<Document> reranked = reranker.rerank(query, candidates, topN);
+        List<Document> packed = contextPacker.pack(query, reranked);
+        logger.debug("Packed {} of {} retrieved chunks into the prompt", packed.size(), candidates.size());
+
+        // The user text is already rendered, so only the advise template sees the context
+        String context = new PromptTemplate(USER_TEXT_ADVISE).render(Map.of(CONTEXT_PARAM, packed.stream()
+                .map(Document::getText)
+                .collect(Collectors.joining(System.lineSeparator()))));
+
+        return chatClientRequest.mutate()
+                .prompt(chatClientRequest.prompt().augmentUserMessage(query + System.lineSeparator() + context))
+                .context(RETRIEVED_DOCUMENTS, packed)
+                .build();
+    }
+
+    private static String collection(ChatClientRequest chatClientRequest) {
+        Object collection = chatClientRequest.context().get(COLLECTION);
+        return collection != null ? collection.toString() : CollectionRegistry.DEFAULT;
+    }
+}
@@ -0,0 +1,266 @@
+package com.sourabh.Spring_RAG;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Executor;
+
+/**
+ * Per-conversation history, bounded so prompts stay the same size however long a conversation runs.
+ * <p>
+ * Only the last {@code windowTurns} turns are replayed verbatim. Older turns are folded into a
+ * rolling summary by the {@link ConversationSummarizer} on the executor, so summarizing never
+ * adds to a request's latency. Until a summary is ready the older turns are simply left out.
+ * <p>
+ * Conversations live in an LRU map of at most {@code maxConversations} entries and are dropped
+ * after {@code idleTimeout} without a turn, checked on access and by a periodic sweep. With a
+ * {@link JdbcConversationRepository} every change is also written to the database, off the
+ * request path, and evicted conversations are loaded back from it. A conversation is loaded
+ * under its own lock, so a slow query only holds up requests for that conversation, and it has
+ * at most one write in flight, so a slow write can not overtake a newer one. A conversation
+ * evicted while its write is in flight is kept aside until the write is done and taken back from
+ * there, because the database does not have its latest turns yet.
+ */
+public class ConversationMemory {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConversationMemory.class);
+
+    public record Turn(String user, String assistant) {
+    }
+
+    public record Snapshot(String summary, List<Turn> turns) {
+
+        public static final Snapshot EMPTY = new Snapshot(null, List.of());
+    }
+
+    private final ConversationSummarizer summarizer;
+    private final Optional<JdbcConversationRepository> repository;
+    private final Executor executor;
+    private final Clock clock;
+    private final int windowTurns;
+    private final Duration idleTimeout;
+    private final Map<String, Conversation> conversations;
+    // Evicted conversations with a write in flight, guarded by the lock on conversations
+    private final Map<String, Conversation> unsaved = new HashMap<>();
+
+    public ConversationMemory(ConversationSummarizer summarizer, Optional<JdbcConversationRepository> repository,
+                              Executor executor, Clock clock, int windowTurns, int maxConversations, Duration idleTimeout) {
+        this.summarizer = summarizer;
+        this.repository = repository;
+        this.executor = executor;
+        this.clock = clock;
+        this.windowTurns = windowTurns;
+        this.idleTimeout = idleTimeout;
+        this.conversations = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Conversation> eldest) {
+                if (size() <= maxConversations) {
+                    return false;
+                }
+                keepIfUnsaved(eldest.getKey(), eldest.getValue());
+                return true;
+            }
+        };
+    }
+
+    /**
+     * The summary and the most recent turns to put in front of the next question.
+     */
+    public Snapshot snapshot(String conversationId) {
+        Conversation conversation = conversation(conversationId);
+        synchronized (conversation) {
+            List<Turn> turns = conversation.turns;
+            if (conversation.summary == null && turns.isEmpty()) {
+                return Snapshot.EMPTY;
+            }
+            return new Snapshot(conversation.summary,
+                    List.copyOf(turns.subList(Math.max(0, turns.size() - windowTurns), turns.size())));
+        }
+    }
+
+    public void append(String conversationId, Turn turn) {
+        Conversation conversation = conversation(conversationId);
+        synchronized (conversation) {
+            conversation.turns.add(turn);
+            conversation.lastUsed = clock.millis();
+            summarizeIfNeeded(conversationId, conversation);
+        }
+        persist(conversationId, conversation);
+    }
+
+    private void summarizeIfNeeded(String conversationId, Conversation conversation) {
+        int overflow = conversation.turns.size() - windowTurns;
+        if (overflow <= 0 || conversation.summarizing) {
+            return;
+        }
+        conversation.summarizing = true;
+        String previousSummary = conversation.summary;
+        List<Turn> older = List.copyOf(conversation.turns.subList(0, overflow));
+
+        executor.execute(() -> {
+            String summary = null;
+            try {
+                summary = summarizer.summarize(previousSummary, older);
+            }
+            catch (RuntimeException e) {
+                logger.warn("Could not summarize conversation {}, keeping its older turns for the next attempt", conversationId, e);
+            }
+            synchronized (conversation) {
+                conversation.summarizing = false;
+                if (summary != null) {
+                    conversation.summary = summary;
+                    conversation.turns.subList(0, older.size()).clear();
+                }
+                else if (conversation.turns.size() > windowTurns * 2) {
+                    // The summarizer keeps failing, give up on the oldest turns rather than grow without bound
+                    conversation.turns.subList(0, conversation.turns.size() - windowTurns * 2).clear();
+                }
+                if (summary != null) {
+                    summarizeIfNeeded(conversationId, conversation);
+                }
+            }
+            persist(conversationId, conversation);
+        });
+    }
+
+    /**
+     * Drops the conversations that had no turn within the idle timeout, including those that are
+     * never asked for again.
+     */
+    @Scheduled(fixedDelayString = "${app.memory.idle-sweep-interval:5m}")
+    public void evictIdle() {
+        long now = clock.millis();
+        synchronized (conversations) {
+            Iterator<Map.Entry<String, Conversation>> entries = conversations.entrySet().iterator();
+            while (entries.hasNext()) {
+                Map.Entry<String, Conversation> entry = entries.next();
+                if (idle(entry.getValue(), now)) {
+                    entries.remove();
+                    keepIfUnsaved(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+    }
+
+    /**
+     * The number of conversations held in memory, not counting those kept until their write is done.
+     */
+    int size() {
+        synchronized (conversations) {
+            return conversations.size();
+        }
+    }
+
+    private Conversation conversation(String conversationId) {
+        Conversation conversation;
+        synchronized (conversations) {
+            long now = clock.millis();
+            conversation = conversations.get(conversationId);
+            if (conversation != null && idle(conversation, now)) {
+                conversations.remove(conversationId);
+                keepIfUnsaved(conversationId, conversation);
+                conversation = null;
+            }
+            if (conversation == null) {
+                conversation = unsaved.remove(conversationId);
+                if (conversation == null) {
+                    conversation = new Conversation(now);
+                }
+                conversations.put(conversationId, conversation);
+            }
+        }
+        synchronized (conversation) {
+            if (!conversation.loaded) {
+                repository.flatMap(r -> r.find(conversationId)).ifPresent(conversation::restore);
+                conversation.loaded = true;
+            }
+        }
+        return conversation;
+    }
+
+    private boolean idle(Conversation conversation, long now) {
+        return now - conversation.lastUsed > idleTimeout.toMillis();
+    }
+
+    /**
+     * Called with the lock on conversations held, for a conversation that was just evicted. Does
+     * not take the conversation's own lock, which is held while it loads.
+     */
+    private void keepIfUnsaved(String conversationId, Conversation conversation) {
+        if (conversation.saving) {
+            unsaved.put(conversationId, conversation);
+        }
+    }
+
+    private void persist(String conversationId, Conversation conversation) {
+        if (repository.isEmpty()) {
+            return;
+        }
+        synchronized (conversation) {
+            conversation.dirty = true;
+            if (conversation.saving) {
+                // The write in flight picks up this change when it is done
+                return;
+            }
+            conversation.saving = true;
+        }
+        executor.execute(() -> save(conversationId, conversation));
+    }
+
+    private void save(String conversationId, Conversation conversation) {
+        while (true) {
+            Snapshot snapshot;
+            synchronized (conversation) {
+                if (!conversation.dirty) {
+                    conversation.saving = false;
+                    break;
+                }
+                conversation.dirty = false;
+                snapshot = new Snapshot(conversation.summary, List.copyOf(conversation.turns));
+            }
+            try {
+                repository.get().save(conversationId, snapshot);
+            }
+            catch (RuntimeException e) {
+                logger.warn("Could not store conversation {}", conversationId, e);
+            }
+        }
+        // Stored, so an evicted conversation can now be loaded back from the database
+        synchronized (conversations) {
+            if (!conversation.saving) {
+                unsaved.remove(conversationId, conversation);
+            }
+        }
+    }
+
+    private static class Conversation {
+
+        private final List<Turn> turns = new ArrayList<>();
+        private String summary;
+        // lastUsed and saving are read without the conversation's lock while evicting
+        private volatile long lastUsed;
+        private boolean loaded;
+        private boolean summarizing;
+        private volatile boolean saving;
+        private boolean dirty;
+
+        Conversation(long lastUsed) {
+            this.lastUsed = lastUsed;
+        }
+
+        void restore(Snapshot snapshot) {
+            summary = snapshot.summary();
+            turns.addAll(snapshot.turns());
+        }
+    }
+}
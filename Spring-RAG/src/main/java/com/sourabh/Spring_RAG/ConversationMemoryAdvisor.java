@@ -0,0 +1,145 @@
+package com.sourabh.Spring_RAG;
+
+import org.springframework.ai.chat.client.ChatClientRequest;
+import org.springframework.ai.chat.client.ChatClientResponse;
+import org.springframework.ai.chat.client.advisor.api.CallAdvisor;
+import org.springframework.ai.chat.client.advisor.api.CallAdvisorChain;
+import org.springframework.ai.chat.client.advisor.api.CallAroundAdvisorChain;
+import org.springframework.ai.chat.client.advisor.api.StreamAdvisor;
+import org.springframework.ai.chat.client.advisor.api.StreamAdvisorChain;
+import org.springframework.ai.chat.client.advisor.api.StreamAroundAdvisorChain;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.SystemMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.prompt.PromptTemplate;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Replays a bounded history from {@link ConversationMemory} for requests that carry the
+ * {@link #CONVERSATION_ID} advisor parameter, and records the new turn afterwards. Requests
+ * without it stay single-turn. It runs before retrieval, so the recorded question is the
+ * user's own text without the retrieved context.
+ */
+public class ConversationMemoryAdvisor implements CallAdvisor, StreamAdvisor {
+
+    public static final String CONVERSATION_ID = "chat_memory_conversation_id";
+
+    private static final String SUMMARY_PARAM = "conversation_summary";
+
+    private static final String SYSTEM_TEXT_ADVISE = """
+
+            Summary of the earlier conversation:
+            {conversation_summary}
+            """;
+
+    private final ConversationMemory conversationMemory;
+
+    public ConversationMemoryAdvisor(ConversationMemory conversationMemory) {
+        this.conversationMemory = conversationMemory;
+    }
+
+    @Override
+    public String getName() {
+        return getClass().getSimpleName();
+    }
+
+    @Override
+    public int getOrder() {
+        return -100;
+    }
+
+    // M8 still declares the chain parameter with the deprecated type, the chain itself is a CallAdvisorChain
+    @Override
+    @SuppressWarnings("deprecation")
+    public ChatClientResponse adviseCall(ChatClientRequest chatClientRequest, CallAroundAdvisorChain chain) {
+        String conversationId = conversationId(chatClientRequest);
+        if (conversationId == null) {
+            return ((CallAdvisorChain) chain).nextCall(chatClientRequest);
+        }
+
+        ChatClientResponse chatClientResponse = ((CallAdvisorChain) chain).nextCall(withHistory(chatClientRequest, conversationId));
+
+        String answer = text(chatClientResponse.chatResponse());
+        if (answer != null) {
+            conversationMemory.append(conversationId, new ConversationMemory.Turn(userText(chatClientRequest), answer));
+        }
+        return chatClientResponse;
+    }
+
+    @Override
+    @SuppressWarnings("deprecation")
+    public Flux<ChatClientResponse> adviseStream(ChatClientRequest chatClientRequest, StreamAroundAdvisorChain chain) {
+        String conversationId = conversationId(chatClientRequest);
+        if (conversationId == null) {
+            return ((StreamAdvisorChain) chain).nextStream(chatClientRequest);
+        }
+
+        // Memory may load the conversation from the database, so keep it off the event loop
+        StringBuilder answer = new StringBuilder();
+        return Mono.fromCallable(() -> withHistory(chatClientRequest, conversationId))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMapMany(((StreamAdvisorChain) chain)::nextStream)
+                .doOnNext(chatClientResponse -> {
+                    String text = text(chatClientResponse.chatResponse());
+                    if (text != null) {
+                        answer.append(text);
+                    }
+                })
+                .concatWith(Mono.<ChatClientResponse>fromRunnable(() -> conversationMemory.append(conversationId,
+                                new ConversationMemory.Turn(userText(chatClientRequest), answer.toString())))
+                        .subscribeOn(Schedulers.boundedElastic()));
+    }
+
+    private static String conversationId(ChatClientRequest chatClientRequest) {
+        Object conversationId = chatClientRequest.context().get(CONVERSATION_ID);
+        return conversationId != null ? conversationId.toString() : null;
+    }
+
+    private static String userText(ChatClientRequest chatClientRequest) {
+        return chatClientRequest.prompt().getUserMessage().getText();
+    }
+
+    private static String text(ChatResponse chatResponse) {
+        return chatResponse != null && chatResponse.getResult() != null ? chatResponse.getResult().getOutput().getText() : null;
+    }
+
+    /**
+     * Puts the replayed turns between the system message and the request's own messages, and
+     * adds the summary of older turns to the system message.
+     */
+    private ChatClientRequest withHistory(ChatClientRequest chatClientRequest, String conversationId) {
+        ConversationMemory.Snapshot snapshot = conversationMemory.snapshot(conversationId);
+        List<Message> systemMessages = new ArrayList<>();
+        List<Message> requestMessages = new ArrayList<>();
+        for (Message message : chatClientRequest.prompt().getInstructions()) {
+            (message instanceof SystemMessage ? systemMessages : requestMessages).add(message);
+        }
+        if (snapshot.summary() != null) {
+            String summary = new PromptTemplate(SYSTEM_TEXT_ADVISE).render(Map.of(SUMMARY_PARAM, snapshot.summary()));
+            if (systemMessages.isEmpty()) {
+                systemMessages.add(new SystemMessage(summary));
+            }
+            else {
+                systemMessages.set(0, new SystemMessage(systemMessages.get(0).getText() + summary));
+            }
+        }
+
+        List<Message> messages = new ArrayList<>(systemMessages);
+        for (ConversationMemory.Turn turn : snapshot.turns()) {
+            messages.add(new UserMessage(turn.user()));
+            messages.add(new AssistantMessage(turn.assistant()));
+        }
+        messages.addAll(requestMessages);
+        return chatClientRequest.mutate()
+                .prompt(chatClientRequest.prompt().mutate().messages(messages).build())
+                .build();
+    }
+}
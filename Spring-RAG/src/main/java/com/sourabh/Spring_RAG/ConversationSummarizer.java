@@ -0,0 +1,38 @@
+package com.sourabh.Spring_RAG;
+
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.prompt.Prompt;
+
+import java.util.List;
+
+/**
+ * Folds turns that dropped out of the conversation window into a short running summary,
+ * using the fast model tier.
+ */
+public class ConversationSummarizer {
+
+    private final ChatModel chatModel;
+    private final int maxWords;
+
+    public ConversationSummarizer(ChatModel chatModel, int maxWords) {
+        this.chatModel = chatModel;
+        this.maxWords = maxWords;
+    }
+
+    public String summarize(String previousSummary, List<ConversationMemory.Turn> turns) {
+        StringBuilder prompt = new StringBuilder()
+                .append("Update the summary of a conversation between a user and an assistant about market reports. ")
+                .append("Keep the facts, numbers and open questions that later questions may refer to. ")
+                .append("Answer with the summary only, in at most ").append(maxWords).append(" words.\n\n")
+                .append("Current summary:\n")
+                .append(previousSummary != null ? previousSummary : "(none)")
+                .append("\n\nNew turns:\n");
+        for (ConversationMemory.Turn turn : turns) {
+            prompt.append("User: ").append(turn.user()).append('\n')
+                    .append("Assistant: ").append(turn.assistant()).append('\n');
+        }
+        return chatModel.call(new Prompt(prompt.toString(),
+                        RoutingChatOptions.of(RoutingProperties.Tier.FAST)))
+                .getResult().getOutput().getText();
+    }
+}
@@ -0,0 +1,95 @@
+package com.sourabh.Spring_RAG;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+
+/**
+ * Watches the inbox directory for new PDFs and moves them into the ingestion queue. PDFs in
+ * the inbox itself go to the default collection, PDFs in a subdirectory go to the collection
+ * named after it.
+ * <p>
+ * The directory is scanned rather than observed with a {@code WatchService}, which misses
+ * events on network mounts. A file is only picked up once it has not changed for
+ * {@code settle-time}, so reports that are still being copied in are left alone. After it is
+ * queued the file is moved under {@code processed/}. Several nodes may scan the same share: the
+ * queue ignores content it already holds.
+ */
+@Component
+@ConditionalOnProperty(name = "app.ingestion.inbox.enabled", havingValue = "true", matchIfMissing = true)
+public class InboxScanner {
+
+    private static final Logger logger = LoggerFactory.getLogger(InboxScanner.class);
+
+    private final IngestionJobRepository jobRepository;
+    private final Path inbox;
+    private final Path processed;
+
+    @Value("${app.ingestion.inbox.settle-time:5s}")
+    private Duration settleTime;
+
+    public InboxScanner(IngestionJobRepository jobRepository, @Value("${app.ingestion.inbox.directory:inbox}") Path inbox) {
+        this.jobRepository = jobRepository;
+        this.inbox = inbox;
+        this.processed = inbox.resolve("processed");
+    }
+
+    @Scheduled(fixedDelayString = "${app.ingestion.inbox.scan-interval:10s}")
+    public void scan() throws IOException {
+        Files.createDirectories(processed);
+        long settledBefore = System.currentTimeMillis() - settleTime.toMillis();
+        scan(inbox, CollectionRegistry.DEFAULT, processed, settledBefore);
+
+        try (DirectoryStream<Path> directories = Files.newDirectoryStream(inbox, Files::isDirectory)) {
+            for (Path directory : directories) {
+                if (directory.equals(processed)) {
+                    continue;
+                }
+                String collection = directory.getFileName().toString();
+                try {
+                    CollectionRegistry.validate(collection);
+                }
+                catch (ResponseStatusException e) {
+                    logger.warn("Ignoring inbox directory {}, it is not a valid collection name", directory);
+                    continue;
+                }
+                scan(directory, collection, processed.resolve(collection), settledBefore);
+            }
+        }
+    }
+
+    private void scan(Path directory, String collection, Path processedDirectory, long settledBefore) throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*.{pdf,PDF}")) {
+            for (Path file : files) {
+                try {
+                    if (Files.getLastModifiedTime(file).toMillis() > settledBefore) {
+                        continue;
+                    }
+                    String fileName = file.getFileName().toString();
+                    long jobId = jobRepository.enqueue(collection, fileName, Files.readAllBytes(file));
+                    Files.createDirectories(processedDirectory);
+                    Files.move(file, processedDirectory.resolve(fileName), StandardCopyOption.REPLACE_EXISTING);
+                    logger.info("Queued {} for collection {} as ingestion job {}", fileName, collection, jobId);
+                }
+                catch (NoSuchFileException e) {
+                    // Taken by another node scanning the same directory
+                }
+                catch (IOException e) {
+                    logger.warn("Could not queue {}", file, e);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.sourabh.Spring_RAG;
+
+import com.knuddels.jtokkit.Encodings;
+import com.knuddels.jtokkit.api.EncodingType;
+import org.springframework.ai.transformer.splitter.TextSplitter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+@Configuration
+@EnableScheduling
+public class IngestionConfig {
+
+    @Bean
+    TextSplitter textSplitter(@Value("${app.ingestion.splitter.chunk-size:800}") int chunkSize,
+                              @Value("${app.ingestion.splitter.overlap:80}") int overlap,
+                              @Value("${app.ingestion.splitter.min-chunk-size:200}") int minChunkSize) {
+        return new SentenceTokenTextSplitter(Encodings.newLazyEncodingRegistry().getEncoding(EncodingType.CL100K_BASE),
+                chunkSize, overlap, minChunkSize);
+    }
+}
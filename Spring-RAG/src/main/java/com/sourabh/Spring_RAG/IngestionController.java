@@ -0,0 +1,51 @@
+package com.sourabh.Spring_RAG;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+
+@RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class IngestionController {
+
+    private final IngestionJobRepository jobRepository;
+
+    public IngestionController(IngestionJobRepository jobRepository) {
+        this.jobRepository = jobRepository;
+    }
+
+    @PostMapping("/ingest")
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public IngestionJob upload(@RequestParam("file") MultipartFile file,
+                               @RequestParam(defaultValue = CollectionRegistry.DEFAULT) String collection) throws IOException {
+        if (file.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Uploaded file is empty");
+        }
+        long jobId = jobRepository.enqueue(CollectionRegistry.validate(collection), file.getOriginalFilename(), file.getBytes());
+        return getJob(jobId);
+    }
+
+    @GetMapping("/ingest/{jobId}")
+    public IngestionJob getJob(@PathVariable long jobId) {
+        return jobRepository.findById(jobId)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Unknown ingestion job " + jobId));
+    }
+
+    @PostMapping("/ingest/{jobId}/retry")
+    public IngestionJob retry(@PathVariable long jobId) {
+        IngestionJob job = getJob(jobId);
+        if (!jobRepository.retry(jobId)) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Ingestion job " + jobId + " is " + job.status());
+        }
+        return getJob(jobId);
+    }
+}
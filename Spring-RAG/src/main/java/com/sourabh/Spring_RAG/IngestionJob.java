@@ -0,0 +1,19 @@
+package com.sourabh.Spring_RAG;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.time.Instant;
+
+/**
+ * One PDF waiting in, or processed from, the ingestion queue, and the collection it goes into.
+ * The content, and the lease that identifies the claim, are only loaded when a worker claims the job.
+ */
+public record IngestionJob(long id, String collection, String fileName, Status status, int attempts, String lastError,
+                           Instant createdAt, Instant updatedAt, @JsonIgnore String lease, @JsonIgnore byte[] content) {
+
+    /**
+     * {@code DEAD} jobs failed {@code app.ingestion.max-attempts} times and are only picked up
+     * again after a manual retry.
+     */
+    public enum Status { PENDING, PROCESSING, DONE, DEAD }
+}
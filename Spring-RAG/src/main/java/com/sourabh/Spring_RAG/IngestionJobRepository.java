@@ -0,0 +1,188 @@
+package com.sourabh.Spring_RAG;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+import org.springframework.util.StringUtils;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Postgres-backed ingestion queue (see {@code schema.sql}).
+ * <p>
+ * Workers claim jobs with {@code FOR UPDATE SKIP LOCKED}, so any number of application nodes
+ * can poll the same table without handing out a job twice. Every claim stores a new lease in
+ * {@code locked_by}, and a worker can only renew, complete or fail a job while it still holds
+ * that lease, so a worker whose lock expired cannot overwrite the job once it was claimed
+ * again. Files are keyed by collection and the hash of their content, which makes enqueueing
+ * the same report again a no-op.
+ */
+@Repository
+public class IngestionJobRepository {
+
+    static final String UNNAMED_FILE = "upload.pdf";
+
+    private static final String COLUMNS = "id, collection, file_name, status, attempts, last_error, created_at, updated_at";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public IngestionJobRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * @param fileName the name of the upload, {@value #UNNAMED_FILE} when the client sent none
+     * @return the id of the new job, or of the existing job for the same content
+     */
+    public long enqueue(String collection, String fileName, byte[] content) {
+        if (!StringUtils.hasText(fileName)) {
+            fileName = UNNAMED_FILE;
+        }
+        String contentHash = contentHash(content);
+        List<Long> inserted = jdbcTemplate.queryForList("""
+                INSERT INTO ingestion_job (collection, file_name, content_hash, content)
+                VALUES (?, ?, ?, ?)
+                ON CONFLICT (collection, content_hash) DO NOTHING
+                RETURNING id
+                """, Long.class, collection, fileName, contentHash, content);
+        if (!inserted.isEmpty()) {
+            return inserted.get(0);
+        }
+        return jdbcTemplate.queryForObject("SELECT id FROM ingestion_job WHERE collection = ? AND content_hash = ?",
+                Long.class, collection, contentHash);
+    }
+
+    public Optional<IngestionJob> findById(long id) {
+        return jdbcTemplate.query("SELECT " + COLUMNS + " FROM ingestion_job WHERE id = ?", this::mapJob, id)
+                .stream().findFirst();
+    }
+
+    /**
+     * Marks up to {@code limit} due jobs as processing under a new lease and returns them with
+     * their content.
+     */
+    public List<IngestionJob> claim(int limit) {
+        String lease = UUID.randomUUID().toString();
+        return jdbcTemplate.query("""
+                UPDATE ingestion_job
+                SET status = 'PROCESSING', attempts = attempts + 1, locked_at = now(), locked_by = ?, updated_at = now()
+                WHERE id IN (
+                    SELECT id FROM ingestion_job
+                    WHERE status = 'PENDING' AND available_at <= now()
+                    ORDER BY id
+                    LIMIT ?
+                    FOR UPDATE SKIP LOCKED)
+                RETURNING %s, locked_by, content
+                """.formatted(COLUMNS),
+                (rs, rowNum) -> mapJob(rs, rs.getString("locked_by"), rs.getBytes("content")), lease, limit);
+    }
+
+    /**
+     * Renews the lock of a job that is still being processed, so {@link #releaseStale} leaves it alone.
+     *
+     * @return whether the job is still held under the lease
+     */
+    public boolean heartbeat(long id, String lease) {
+        return jdbcTemplate.update("""
+                UPDATE ingestion_job
+                SET locked_at = now()
+                WHERE id = ? AND status = 'PROCESSING' AND locked_by = ?
+                """, id, lease) == 1;
+    }
+
+    /**
+     * @return whether the job was still held under the lease
+     */
+    public boolean complete(long id, String lease) {
+        return jdbcTemplate.update("""
+                UPDATE ingestion_job
+                SET status = 'DONE', content = NULL, last_error = NULL, locked_at = NULL, locked_by = NULL, updated_at = now()
+                WHERE id = ? AND status = 'PROCESSING' AND locked_by = ?
+                """, id, lease) == 1;
+    }
+
+    /**
+     * Schedules the job again after {@code backoff} times its attempts, or moves it to the dead
+     * letter state once it has used up {@code maxAttempts}.
+     *
+     * @return whether the job was still held under the lease
+     */
+    public boolean fail(long id, String lease, String error, int maxAttempts, Duration backoff) {
+        return jdbcTemplate.update("""
+                UPDATE ingestion_job
+                SET status = CASE WHEN attempts >= ? THEN 'DEAD' ELSE 'PENDING' END,
+                    last_error = ?,
+                    available_at = now() + attempts * ? * interval '1 millisecond',
+                    locked_at = NULL,
+                    locked_by = NULL,
+                    updated_at = now()
+                WHERE id = ? AND status = 'PROCESSING' AND locked_by = ?
+                """, maxAttempts, error, backoff.toMillis(), id, lease) == 1;
+    }
+
+    /**
+     * Returns jobs whose worker stopped without completing them, e.g. because its node died,
+     * to the queue.
+     */
+    public int releaseStale(Duration lockTimeout, int maxAttempts) {
+        return jdbcTemplate.update("""
+                UPDATE ingestion_job
+                SET status = CASE WHEN attempts >= ? THEN 'DEAD' ELSE 'PENDING' END,
+                    last_error = COALESCE(last_error, 'Worker did not finish the job'),
+                    locked_at = NULL,
+                    locked_by = NULL,
+                    updated_at = now()
+                WHERE status = 'PROCESSING' AND locked_at < now() - ? * interval '1 millisecond'
+                """, maxAttempts, lockTimeout.toMillis());
+    }
+
+    /**
+     * Puts a dead job back in the queue with fresh attempts.
+     *
+     * @return whether the job was dead
+     */
+    public boolean retry(long id) {
+        return jdbcTemplate.update("""
+                UPDATE ingestion_job
+                SET status = 'PENDING', attempts = 0, available_at = now(), updated_at = now()
+                WHERE id = ? AND status = 'DEAD'
+                """, id) == 1;
+    }
+
+    private IngestionJob mapJob(ResultSet rs, int rowNum) throws SQLException {
+        return mapJob(rs, null, null);
+    }
+
+    private IngestionJob mapJob(ResultSet rs, String lease, byte[] content) throws SQLException {
+        return new IngestionJob(rs.getLong("id"), rs.getString("collection"), rs.getString("file_name"),
+                IngestionJob.Status.valueOf(rs.getString("status")), rs.getInt("attempts"),
+                rs.getString("last_error"), instant(rs.getTimestamp("created_at")),
+                instant(rs.getTimestamp("updated_at")), lease, content);
+    }
+
+    private static Instant instant(Timestamp timestamp) {
+        return timestamp != null ? timestamp.toInstant() : null;
+    }
+
+    /**
+     * The SHA-256 of a file, which keys both the job and the chunks it stores.
+     */
+    static String contentHash(byte[] content) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+        }
+        catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -1,38 +1,84 @@
 package com.sourabh.Spring_RAG;
 
-import org.apache.tomcat.util.descriptor.web.Injectable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.reader.pdf.PagePdfDocumentReader;
 import org.springframework.ai.reader.pdf.ParagraphPdfDocumentReader;
 import org.springframework.ai.transformer.splitter.TextSplitter;
-import org.springframework.ai.transformer.splitter.TokenTextSplitter;
 import org.springframework.ai.vectorstore.VectorStore;
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.boot.CommandLineRunner;
+import org.springframework.ai.vectorstore.filter.FilterExpressionBuilder;
+import org.springframework.core.io.ByteArrayResource;
 import org.springframework.core.io.Resource;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionOperations;
 
+import java.util.List;
 
-
+/**
+ * Turns one PDF into chunks in the vector store of a collection. Chunks are tagged with the file name as
+ * {@value #SOURCE} and with the hash of the file as {@value #CONTENT_HASH}. The chunks of an earlier
+ * attempt for the same content are removed first, so a retried job does not leave duplicates behind
+ * and another report uploaded under the same name keeps its chunks. The removal and the insert run in
+ * one transaction, so a failed insert does not leave the content without its earlier chunks.
+ */
 @Component
-public class IngestionService implements CommandLineRunner {
+public class IngestionService {
+
+    public static final String SOURCE = "source";
+    public static final String CONTENT_HASH = "content_hash";
+
+    private static final Logger logger = LoggerFactory.getLogger(IngestionService.class);
 
-    private static final Logger logger = LoggerFactory.getLogger(Injectable.class);
+    private final CollectionRegistry collections;
+    private final TextSplitter textSplitter;
+    private final TransactionOperations transactionOperations;
+
+    public IngestionService(CollectionRegistry collections, TextSplitter textSplitter,
+                            TransactionOperations transactionOperations) {
+        this.collections = collections;
+        this.textSplitter = textSplitter;
+        this.transactionOperations = transactionOperations;
+    }
 
-    private final VectorStore vectorStore;
+    /**
+     * @return the number of chunks stored
+     */
+    public int ingest(String collection, String fileName, byte[] content) {
+        Resource pdf = new ByteArrayResource(content) {
+            @Override
+            public String getFilename() {
+                return fileName;
+            }
+        };
 
-    @Value("classpath:/docs/article_thebeatoct2024.pdf")
-    private Resource marketPdf;
+        List<Document> chunks = textSplitter.apply(read(pdf));
+        if (chunks.isEmpty()) {
+            throw new IllegalArgumentException("No text found in " + fileName);
+        }
+        String contentHash = IngestionJobRepository.contentHash(content);
+        chunks.forEach(chunk -> {
+            chunk.getMetadata().put(SOURCE, fileName);
+            chunk.getMetadata().put(CONTENT_HASH, contentHash);
+        });
 
-    public IngestionService(VectorStore vectorStore) {
-        this.vectorStore = vectorStore;
+        VectorStore vectorStore = collections.getOrCreate(collection);
+        transactionOperations.executeWithoutResult(status -> {
+            vectorStore.delete(new FilterExpressionBuilder().eq(CONTENT_HASH, contentHash).build());
+            vectorStore.add(chunks);
+        });
+        logger.info("Collection {} loaded with {} chunks from {}", collection, chunks.size(), fileName);
+        return chunks.size();
     }
 
-    @Override
-    public void run(String... args) throws Exception {
-        var pdfReader = new ParagraphPdfDocumentReader(marketPdf);
-        TextSplitter textSplitter = new TokenTextSplitter();
-        //vectorStore.accept(pdfReader.get());
-        logger.info("Vector sotre loaded with data");
+    private static List<Document> read(Resource pdf) {
+        try {
+            return new ParagraphPdfDocumentReader(pdf).get();
+        }
+        catch (IllegalArgumentException e) {
+            // Paragraphs come from the PDF outline, reports without one are read page by page
+            logger.debug("No outline in {}, reading it by page", pdf.getFilename());
+            return new PagePdfDocumentReader(pdf).get();
+        }
     }
 }
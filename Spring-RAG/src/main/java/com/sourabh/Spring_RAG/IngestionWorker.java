@@ -0,0 +1,116 @@
+package com.sourabh.Spring_RAG;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Drains the ingestion queue. Every node runs a worker; jobs are claimed one at a time so a
+ * slow PDF on one node does not hold back jobs another node could take.
+ * <p>
+ * While a job runs, its lock is renewed every third of the lock timeout, so a large report that
+ * takes longer than the timeout is not released to another node and ingested twice. Renewals
+ * and the final status are written under the lease of the claim, so a worker that lost its
+ * lock anyway leaves the job to the node that claimed it next.
+ */
+@Component
+public class IngestionWorker {
+
+    private static final Logger logger = LoggerFactory.getLogger(IngestionWorker.class);
+
+    private final IngestionJobRepository jobRepository;
+    private final IngestionService ingestionService;
+    // Own thread, the scheduler thread is busy running poll() while a lock needs renewing
+    private final ScheduledExecutorService heartbeats = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "ingestion-heartbeat");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Value("${app.ingestion.max-jobs-per-poll:10}")
+    private int maxJobsPerPoll;
+
+    @Value("${app.ingestion.max-attempts:3}")
+    private int maxAttempts;
+
+    @Value("${app.ingestion.retry-backoff:1m}")
+    private Duration retryBackoff;
+
+    @Value("${app.ingestion.lock-timeout:15m}")
+    private Duration lockTimeout;
+
+    public IngestionWorker(IngestionJobRepository jobRepository, IngestionService ingestionService) {
+        this.jobRepository = jobRepository;
+        this.ingestionService = ingestionService;
+    }
+
+    @Scheduled(fixedDelayString = "${app.ingestion.poll-interval:5s}")
+    public void poll() {
+        int released = jobRepository.releaseStale(lockTimeout, maxAttempts);
+        if (released > 0) {
+            logger.warn("Released {} ingestion jobs that were not finished within {}", released, lockTimeout);
+        }
+
+        for (int i = 0; i < maxJobsPerPoll; i++) {
+            List<IngestionJob> claimed = jobRepository.claim(1);
+            if (claimed.isEmpty()) {
+                return;
+            }
+            process(claimed.get(0));
+        }
+    }
+
+    void process(IngestionJob job) {
+        long interval = Math.max(1, lockTimeout.toMillis() / 3);
+        ScheduledFuture<?> heartbeat = heartbeats.scheduleAtFixedRate(() -> renewLock(job),
+                interval, interval, TimeUnit.MILLISECONDS);
+        try {
+            int chunks = ingestionService.ingest(job.collection(), job.fileName(), job.content());
+            if (jobRepository.complete(job.id(), job.lease())) {
+                logger.info("Ingestion job {} ({}) stored {} chunks", job.id(), job.fileName(), chunks);
+            }
+            else {
+                logger.warn("Ingestion job {} ({}) stored {} chunks after its lock was released, leaving it to its new owner",
+                        job.id(), job.fileName(), chunks);
+            }
+        }
+        catch (RuntimeException e) {
+            logger.warn("Ingestion job {} ({}) failed on attempt {} of {}",
+                    job.id(), job.fileName(), job.attempts(), maxAttempts, e);
+            if (!jobRepository.fail(job.id(), job.lease(), String.valueOf(e.getMessage()), maxAttempts, retryBackoff)) {
+                logger.warn("Ingestion job {} ({}) is no longer locked by this worker, its failure is not recorded",
+                        job.id(), job.fileName());
+            }
+        }
+        finally {
+            heartbeat.cancel(false);
+        }
+    }
+
+    private void renewLock(IngestionJob job) {
+        try {
+            if (!jobRepository.heartbeat(job.id(), job.lease())) {
+                logger.warn("Ingestion job {} ({}) is no longer locked by this worker", job.id(), job.fileName());
+            }
+        }
+        catch (RuntimeException e) {
+            // A failed renewal must not cancel the ones after it
+            logger.warn("Could not renew the lock of ingestion job {}", job.id(), e);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        heartbeats.shutdownNow();
+    }
+}
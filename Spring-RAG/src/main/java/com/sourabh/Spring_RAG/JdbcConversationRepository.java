@@ -0,0 +1,59 @@
+package com.sourabh.Spring_RAG;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Durable copy of conversations in the {@code conversation} table (see {@code schema.sql}),
+ * so conversations survive restarts and can continue on another node.
+ */
+public class JdbcConversationRepository {
+
+    private static final TypeReference<List<ConversationMemory.Turn>> TURNS = new TypeReference<>() {
+    };
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+
+    public JdbcConversationRepository(JdbcTemplate jdbcTemplate, ObjectMapper objectMapper) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+    }
+
+    public Optional<ConversationMemory.Snapshot> find(String conversationId) {
+        return jdbcTemplate.query("SELECT summary, turns FROM conversation WHERE id = ?",
+                (rs, rowNum) -> new ConversationMemory.Snapshot(rs.getString("summary"), readTurns(rs.getString("turns"))),
+                conversationId).stream().findFirst();
+    }
+
+    public void save(String conversationId, ConversationMemory.Snapshot snapshot) {
+        jdbcTemplate.update("""
+                INSERT INTO conversation (id, summary, turns, updated_at)
+                VALUES (?, ?, ?, now())
+                ON CONFLICT (id) DO UPDATE SET summary = EXCLUDED.summary, turns = EXCLUDED.turns, updated_at = now()
+                """, conversationId, snapshot.summary(), writeTurns(snapshot.turns()));
+    }
+
+    private List<ConversationMemory.Turn> readTurns(String json) {
+        try {
+            return objectMapper.readValue(json, TURNS);
+        }
+        catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unreadable conversation turns", e);
+        }
+    }
+
+    private String writeTurns(List<ConversationMemory.Turn> turns) {
+        try {
+            return objectMapper.writeValueAsString(turns);
+        }
+        catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize conversation turns", e);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.sourabh.Spring_RAG;
+
+import org.springframework.ai.document.Document;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * CPU-only re-ranker for retrieved chunks.
+ * <p>
+ * Every candidate is scored against the query with a small set of features: BM25 over the
+ * candidate pool, the share of query terms the chunk covers, the share of adjacent query term
+ * pairs it contains as a phrase and the similarity score from the vector store. The re-rank
+ * score replaces the document score, which is what the {@link ContextPacker} uses as relevance.
+ * <p>
+ * A cross-encoder would need a model forward pass per candidate on every question. These
+ * features take microseconds per chunk for a few dozen candidates, so scoring runs inline on
+ * the calling thread, where handing chunks to a pool would cost more than the work itself.
+ */
+public class LexicalReranker {
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    private static final double BM25_WEIGHT = 0.45;
+    private static final double COVERAGE_WEIGHT = 0.2;
+    private static final double PHRASE_WEIGHT = 0.15;
+    private static final double VECTOR_WEIGHT = 0.2;
+
+    public List<Document> rerank(String query, List<Document> candidates, int topN) {
+        if (candidates.isEmpty()) {
+            return candidates;
+        }
+        List<String> queryTokens = ContextPacker.tokens(query);
+        Set<String> queryTerms = new LinkedHashSet<>(queryTokens);
+        Set<String> queryPairs = pairs(queryTokens);
+
+        List<List<String>> tokenized = candidates.stream().map(document -> ContextPacker.tokens(document.getText())).toList();
+
+        Map<String, Integer> documentFrequencies = new HashMap<>();
+        double totalLength = 0;
+        for (List<String> tokens : tokenized) {
+            totalLength += tokens.size();
+            for (String term : new HashSet<>(tokens)) {
+                if (queryTerms.contains(term)) {
+                    documentFrequencies.merge(term, 1, Integer::sum);
+                }
+            }
+        }
+        int n = candidates.size();
+        double averageLength = Math.max(1, totalLength / n);
+
+        List<Features> features = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            features.add(features(tokenized.get(i), candidates.get(i), queryTerms, queryPairs, documentFrequencies, n, averageLength));
+        }
+
+        double maxBm25 = features.stream().mapToDouble(Features::bm25).max().orElse(0);
+        List<Document> reranked = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            Features f = features.get(i);
+            double score = BM25_WEIGHT * (maxBm25 > 0 ? f.bm25() / maxBm25 : 0)
+                    + COVERAGE_WEIGHT * f.coverage()
+                    + PHRASE_WEIGHT * f.phrase()
+                    + VECTOR_WEIGHT * f.vectorScore();
+            reranked.add(candidates.get(i).mutate().score(score).build());
+        }
+        reranked.sort(Comparator.comparingDouble(Document::getScore).reversed());
+        return reranked.subList(0, Math.min(topN, reranked.size()));
+    }
+
+    private static Features features(List<String> tokens, Document document, Set<String> queryTerms,
+                                     Set<String> queryPairs, Map<String, Integer> documentFrequencies,
+                                     int documentCount, double averageLength) {
+        Map<String, Integer> frequencies = new HashMap<>();
+        for (String token : tokens) {
+            if (queryTerms.contains(token)) {
+                frequencies.merge(token, 1, Integer::sum);
+            }
+        }
+
+        double bm25 = 0;
+        double lengthNorm = K1 * (1 - B + B * tokens.size() / averageLength);
+        for (Map.Entry<String, Integer> entry : frequencies.entrySet()) {
+            int df = documentFrequencies.get(entry.getKey());
+            double idf = Math.log(1 + (documentCount - df + 0.5) / (df + 0.5));
+            int tf = entry.getValue();
+            bm25 += idf * tf * (K1 + 1) / (tf + lengthNorm);
+        }
+
+        double coverage = queryTerms.isEmpty() ? 0 : (double) frequencies.size() / queryTerms.size();
+        double phrase = 0;
+        if (!queryPairs.isEmpty()) {
+            Set<String> documentPairs = pairs(tokens);
+            phrase = (double) queryPairs.stream().filter(documentPairs::contains).count() / queryPairs.size();
+        }
+        double vectorScore = document.getScore() != null ? document.getScore() : 0;
+        return new Features(bm25, coverage, phrase, vectorScore);
+    }
+
+    private static Set<String> pairs(List<String> tokens) {
+        Set<String> pairs = new HashSet<>();
+        for (int i = 1; i < tokens.size(); i++) {
+            pairs.add(tokens.get(i - 1) + ' ' + tokens.get(i));
+        }
+        return pairs;
+    }
+
+    private record Features(double bm25, double coverage, double phrase, double vectorScore) {
+    }
+}
@@ -0,0 +1,41 @@
+package com.sourabh.Spring_RAG;
+
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.transformers.TransformersEmbeddingModel;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+/**
+ * Embeds ingested chunks and queries in-process with an ONNX sentence-embedding model instead
+ * of calling OpenAI. Enabled with {@code spring.ai.model.embedding=transformers}, which also
+ * switches off the OpenAI embedding auto-configuration. The ONNX runtime is only packaged
+ * when the application is built with {@code -Dlocal-embedding}.
+ */
+@Configuration
+@ConditionalOnProperty(name = "spring.ai.model.embedding", havingValue = "transformers")
+public class LocalEmbeddingConfig {
+
+    @Bean
+    TransformersEmbeddingModel transformersEmbeddingModel(
+            @Value("${app.embedding.local.model-uri:" + TransformersEmbeddingModel.DEFAULT_ONNX_MODEL_URI + "}") String modelUri,
+            @Value("${app.embedding.local.tokenizer-uri:" + TransformersEmbeddingModel.DEFAULT_ONNX_TOKENIZER_URI + "}") String tokenizerUri,
+            @Value("${app.embedding.local.cache-directory:}") String cacheDirectory) {
+        TransformersEmbeddingModel embeddingModel = new TransformersEmbeddingModel();
+        embeddingModel.setModelResource(modelUri);
+        embeddingModel.setTokenizerResource(tokenizerUri);
+        if (!cacheDirectory.isBlank()) {
+            embeddingModel.setResourceCacheDirectory(cacheDirectory);
+        }
+        return embeddingModel;
+    }
+
+    @Bean
+    @Primary
+    EmbeddingModel embeddingModel(TransformersEmbeddingModel transformersEmbeddingModel,
+                                  @Value("${app.embedding.local.batch-size:32}") int batchSize) {
+        return new BatchingEmbeddingModel(transformersEmbeddingModel, batchSize);
+    }
+}
@@ -0,0 +1,43 @@
+package com.sourabh.Spring_RAG;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+@Configuration
+public class MemoryConfig {
+
+    @Bean(destroyMethod = "shutdown")
+    ExecutorService conversationMemoryExecutor(@Value("${app.memory.summarizer-threads:2}") int threads) {
+        return Executors.newFixedThreadPool(threads);
+    }
+
+    @Bean
+    ConversationMemory conversationMemory(ChatModel chatModel, JdbcTemplate jdbcTemplate, ObjectMapper objectMapper,
+                                          ExecutorService conversationMemoryExecutor,
+                                          @Value("${app.memory.window-turns:6}") int windowTurns,
+                                          @Value("${app.memory.summary-max-words:150}") int summaryMaxWords,
+                                          @Value("${app.memory.max-conversations:10000}") int maxConversations,
+                                          @Value("${app.memory.idle-timeout:2h}") Duration idleTimeout,
+                                          @Value("${app.memory.jdbc.enabled:false}") boolean jdbcEnabled) {
+        Optional<JdbcConversationRepository> repository = jdbcEnabled
+                ? Optional.of(new JdbcConversationRepository(jdbcTemplate, objectMapper))
+                : Optional.empty();
+        return new ConversationMemory(new ConversationSummarizer(chatModel, summaryMaxWords), repository,
+                conversationMemoryExecutor, Clock.systemUTC(), windowTurns, maxConversations, idleTimeout);
+    }
+
+    @Bean
+    ConversationMemoryAdvisor conversationMemoryAdvisor(ConversationMemory conversationMemory) {
+        return new ConversationMemoryAdvisor(conversationMemory);
+    }
+}
@@ -0,0 +1,19 @@
+package com.sourabh.Spring_RAG;
+
+import org.springframework.aot.hint.BindingReflectionHintsRegistrar;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+
+/**
+ * Hints for the native image that AOT processing cannot infer from the bean definitions:
+ * conversation turns are stored as JSON with Jackson by {@link JdbcConversationRepository},
+ * and {@link RoutingChatOptions} are copied bean property by bean property.
+ */
+class RagRuntimeHints implements RuntimeHintsRegistrar {
+
+    @Override
+    public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+        new BindingReflectionHintsRegistrar().registerReflectionHints(hints.reflection(),
+                ConversationMemory.Turn.class, RoutingChatOptions.class);
+    }
+}
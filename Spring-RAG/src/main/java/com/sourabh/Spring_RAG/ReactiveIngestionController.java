@@ -0,0 +1,78 @@
+package com.sourabh.Spring_RAG;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.io.buffer.DataBufferLimitException;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.codec.multipart.FilePart;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RequestPart;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * WebFlux counterpart of {@link IngestionController}, active when the app is built with the
+ * {@code webflux} profile. The job queue is JDBC, so its calls run on the bounded elastic scheduler.
+ */
+@RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveIngestionController {
+
+    private final IngestionJobRepository jobRepository;
+
+    @Value("${spring.servlet.multipart.max-file-size:50MB}")
+    private DataSize maxFileSize;
+
+    public ReactiveIngestionController(IngestionJobRepository jobRepository) {
+        this.jobRepository = jobRepository;
+    }
+
+    @PostMapping("/ingest")
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public Mono<IngestionJob> upload(@RequestPart("file") FilePart file,
+                                     @RequestParam(defaultValue = CollectionRegistry.DEFAULT) String collection) {
+        CollectionRegistry.validate(collection);
+        return DataBufferUtils.join(file.content(), (int) maxFileSize.toBytes())
+                .onErrorMap(DataBufferLimitException.class, e -> new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE,
+                        "Uploaded file is larger than " + maxFileSize))
+                .map(buffer -> {
+                    byte[] content = new byte[buffer.readableByteCount()];
+                    buffer.read(content);
+                    DataBufferUtils.release(buffer);
+                    return content;
+                })
+                .filter(content -> content.length > 0)
+                .switchIfEmpty(Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "Uploaded file is empty")))
+                .publishOn(Schedulers.boundedElastic())
+                .map(content -> jobRepository.enqueue(collection, file.filename(), content))
+                .flatMap(this::getJob);
+    }
+
+    @GetMapping("/ingest/{jobId}")
+    public Mono<IngestionJob> getJob(@PathVariable long jobId) {
+        return Mono.fromCallable(() -> jobRepository.findById(jobId))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMap(Mono::justOrEmpty)
+                .switchIfEmpty(Mono.error(new ResponseStatusException(HttpStatus.NOT_FOUND, "Unknown ingestion job " + jobId)));
+    }
+
+    @PostMapping("/ingest/{jobId}/retry")
+    public Mono<IngestionJob> retry(@PathVariable long jobId) {
+        return getJob(jobId)
+                .publishOn(Schedulers.boundedElastic())
+                .flatMap(job -> {
+                    if (!jobRepository.retry(jobId)) {
+                        return Mono.error(new ResponseStatusException(HttpStatus.CONFLICT, "Ingestion job " + jobId + " is " + job.status()));
+                    }
+                    return getJob(jobId);
+                });
+    }
+}
@@ -0,0 +1,49 @@
+package com.sourabh.Spring_RAG;
+
+import org.springframework.ai.chat.client.ChatClientCustomizer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+@Configuration
+public class ResilienceConfig {
+
+    /**
+     * Bounded pool for model call attempts. A full pool and queue reject the call, so a slow
+     * upstream cannot pile up threads without limit.
+     */
+    @Bean(destroyMethod = "shutdownNow")
+    ExecutorService modelCallExecutor(@Value("${app.resilience.executor.max-threads:64}") int maxThreads,
+                                      @Value("${app.resilience.executor.queue-capacity:64}") int queueCapacity) {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(maxThreads, maxThreads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueCapacity)), new ThreadPoolExecutor.AbortPolicy());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    @Bean
+    ResilienceAdvisor resilienceAdvisor(ExecutorService modelCallExecutor,
+                                        @Value("${app.resilience.deadline:30s}") Duration deadline,
+                                        @Value("${app.resilience.hedge.enabled:true}") boolean hedgingEnabled,
+                                        @Value("${app.resilience.hedge.min-delay:1s}") Duration minHedgeDelay,
+                                        @Value("${app.resilience.circuit-breaker.failure-rate-threshold:0.5}") double failureRateThreshold,
+                                        @Value("${app.resilience.circuit-breaker.window-size:20}") int windowSize,
+                                        @Value("${app.resilience.circuit-breaker.open-duration:30s}") Duration openDuration) {
+        return ResilienceAdvisor.builder(modelCallExecutor)
+                .deadline(deadline)
+                .hedging(hedgingEnabled, minHedgeDelay)
+                .circuitBreaker(failureRateThreshold, windowSize, openDuration)
+                .build();
+    }
+
+    @Bean
+    ChatClientCustomizer resilienceChatClientCustomizer(ResilienceAdvisor resilienceAdvisor) {
+        return chatClientBuilder -> chatClientBuilder.defaultAdvisors(resilienceAdvisor);
+    }
+}
@@ -0,0 +1,229 @@
+package com.sourabh.Spring_RAG;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.prompt.ChatOptions;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.model.ModelOptionsUtils;
+import org.springframework.ai.openai.OpenAiChatOptions;
+import org.springframework.ai.tokenizer.TokenCountEstimator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * {@link ChatModel} that spreads calls over several configured models.
+ * <p>
+ * The tier is taken from {@link RoutingChatOptions} when the prompt carries them, otherwise it
+ * is chosen by prompt size. Only routes of that tier are used, ordered by their recent latency
+ * and error rate, so cheap calls never spend the quota of an expensive model. Falling back to
+ * the other tier has to be enabled with {@code app.routing.cross-tier-fallback}. Every route has
+ * its own concurrency limit, for calls and streams alike, so cheap calls never wait for a slot
+ * held by an expensive generation on another model.
+ */
+public class RoutingChatModel implements ChatModel {
+
+    private static final Logger logger = LoggerFactory.getLogger(RoutingChatModel.class);
+
+    private final ChatModel delegate;
+    private final TokenCountEstimator tokenCountEstimator;
+    private final RoutingProperties routingProperties;
+    private final List<Route> routes;
+
+    public RoutingChatModel(ChatModel delegate, TokenCountEstimator tokenCountEstimator, RoutingProperties routingProperties) {
+        this.delegate = delegate;
+        this.tokenCountEstimator = tokenCountEstimator;
+        this.routingProperties = routingProperties;
+        this.routes = routingProperties.routes().stream().map(Route::new).toList();
+    }
+
+    @Override
+    public ChatResponse call(Prompt prompt) {
+        List<Route> candidates = candidates(prompt);
+        int from = 0;
+        while (true) {
+            int index = acquire(candidates, from);
+            Route route = candidates.get(index);
+            try {
+                return route.call(prompt);
+            }
+            catch (RuntimeException e) {
+                if (index + 1 >= candidates.size()) {
+                    throw e;
+                }
+                logger.warn("Model {} failed, falling back to the next route", route.spec.model(), e);
+                from = index + 1;
+            }
+            finally {
+                route.permits.release();
+            }
+        }
+    }
+
+    @Override
+    public Flux<ChatResponse> stream(Prompt prompt) {
+        return stream(prompt, candidates(prompt), 0);
+    }
+
+    private Flux<ChatResponse> stream(Prompt prompt, List<Route> candidates, int from) {
+        // Waiting for a permit blocks, so it happens off the caller's thread
+        return Mono.fromCallable(() -> acquire(candidates, from))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMapMany(index -> {
+                    Route route = candidates.get(index);
+                    AtomicBoolean emitted = new AtomicBoolean();
+                    return route.stream(prompt)
+                            .doOnNext(response -> emitted.set(true))
+                            .onErrorResume(e -> !emitted.get() && index + 1 < candidates.size(), e -> {
+                                logger.warn("Model {} failed, falling back to the next route", route.spec.model(), e);
+                                return stream(prompt, candidates, index + 1);
+                            });
+                });
+    }
+
+    /**
+     * Takes a permit on the first route from {@code from} that has one free, or waits for the
+     * route at {@code from} when they are all at their concurrency limit.
+     *
+     * @return the index of the route that was acquired
+     */
+    private static int acquire(List<Route> candidates, int from) {
+        for (int i = from; i < candidates.size(); i++) {
+            if (candidates.get(i).permits.tryAcquire()) {
+                return i;
+            }
+        }
+        candidates.get(from).permits.acquireUninterruptibly();
+        return from;
+    }
+
+    @Override
+    public ChatOptions getDefaultOptions() {
+        return delegate.getDefaultOptions();
+    }
+
+    List<Route> candidates(Prompt prompt) {
+        int promptTokens = tokenCountEstimator.estimate(prompt.getContents());
+        RoutingProperties.Tier tier = requestedTier(prompt, promptTokens);
+
+        List<Route> accepting = routes.stream()
+                .filter(route -> promptTokens <= route.spec.maxPromptTokens())
+                .filter(route -> route.spec.tier() == tier || routingProperties.crossTierFallback())
+                .toList();
+        if (accepting.isEmpty()) {
+            throw new IllegalArgumentException("No configured " + tier + " model accepts a prompt of " + promptTokens + " tokens");
+        }
+
+        // Scores move while other requests complete, so take a snapshot to sort on. Routes
+        // without latency samples yet are scored as an average route so they get traffic
+        // without being preferred over routes known to be fast.
+        double sampledLatency = accepting.stream().mapToDouble(Route::latency).filter(latency -> latency > 0)
+                .average().orElse(0);
+        Map<Route, Double> scores = new HashMap<>();
+        accepting.forEach(route -> scores.put(route, route.score(sampledLatency)));
+
+        List<Route> candidates = new ArrayList<>(accepting);
+        candidates.sort(Comparator.<Route>comparingInt(route -> route.spec.tier() == tier ? 0 : 1)
+                .thenComparingDouble(scores::get));
+        return candidates;
+    }
+
+    private RoutingProperties.Tier requestedTier(Prompt prompt, int promptTokens) {
+        if (prompt.getOptions() instanceof RoutingChatOptions routingOptions && routingOptions.getTier() != null) {
+            return routingOptions.getTier();
+        }
+        return promptTokens <= routingProperties.fastMaxPromptTokens()
+                ? RoutingProperties.Tier.FAST
+                : RoutingProperties.Tier.QUALITY;
+    }
+
+    class Route {
+
+        private static final double ALPHA = 0.2;
+
+        final RoutingProperties.Route spec;
+        final Semaphore permits;
+        private double latencyMillis;
+        private double errorRate;
+
+        Route(RoutingProperties.Route spec) {
+            this.spec = spec;
+            this.permits = new Semaphore(spec.maxConcurrent());
+        }
+
+        ChatResponse call(Prompt prompt) {
+            long start = System.nanoTime();
+            try {
+                ChatResponse response = delegate.call(prompt(prompt));
+                record((System.nanoTime() - start) / 1_000_000.0, false);
+                return response;
+            }
+            catch (RuntimeException e) {
+                record((System.nanoTime() - start) / 1_000_000.0, true);
+                throw e;
+            }
+        }
+
+        Flux<ChatResponse> stream(Prompt prompt) {
+            long start = System.nanoTime();
+            // Released before the end of the stream is signalled downstream, and only once
+            AtomicBoolean released = new AtomicBoolean();
+            Runnable release = () -> {
+                if (released.compareAndSet(false, true)) {
+                    permits.release();
+                }
+            };
+            return delegate.stream(prompt(prompt))
+                    .doOnComplete(() -> record((System.nanoTime() - start) / 1_000_000.0, false))
+                    .doOnError(e -> record((System.nanoTime() - start) / 1_000_000.0, true))
+                    .doOnTerminate(release)
+                    .doOnCancel(release);
+        }
+
+        Prompt prompt(Prompt prompt) {
+            OpenAiChatOptions options;
+            if (prompt.getOptions() instanceof OpenAiChatOptions openAiChatOptions) {
+                // A plain copy, so routing options never reach the provider model
+                options = OpenAiChatOptions.fromOptions(openAiChatOptions);
+            }
+            else if (prompt.getOptions() != null) {
+                options = ModelOptionsUtils.copyToTarget(prompt.getOptions(), ChatOptions.class, OpenAiChatOptions.class);
+            }
+            else {
+                options = new OpenAiChatOptions();
+            }
+            options.setModel(spec.model());
+            return new Prompt(prompt.getInstructions(), options);
+        }
+
+        synchronized void record(double millis, boolean failed) {
+            latencyMillis = latencyMillis == 0 ? millis : ALPHA * millis + (1 - ALPHA) * latencyMillis;
+            errorRate = ALPHA * (failed ? 1 : 0) + (1 - ALPHA) * errorRate;
+        }
+
+        synchronized double latency() {
+            return latencyMillis;
+        }
+
+        /**
+         * Lower is better: recent latency, penalised by the recent error rate and by how busy the route is.
+         *
+         * @param defaultLatency latency assumed while the route has no samples
+         */
+        synchronized double score(double defaultLatency) {
+            double busy = 1 - (double) permits.availablePermits() / spec.maxConcurrent();
+            double latency = latencyMillis > 0 ? latencyMillis : defaultLatency;
+            return latency * (1 + 4 * errorRate) * (1 + busy);
+        }
+    }
+}
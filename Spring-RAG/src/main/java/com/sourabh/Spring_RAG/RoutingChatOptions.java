@@ -0,0 +1,37 @@
+package com.sourabh.Spring_RAG;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import org.springframework.ai.model.ModelOptionsUtils;
+import org.springframework.ai.openai.OpenAiChatOptions;
+
+/**
+ * {@link OpenAiChatOptions} that ask the {@link RoutingChatModel} for a tier. The tier is not a
+ * request field, so a prompt that reaches the OpenAI model without routing keeps the configured
+ * default model instead of sending the tier name as a model.
+ */
+public class RoutingChatOptions extends OpenAiChatOptions {
+
+    @JsonIgnore
+    private RoutingProperties.Tier tier;
+
+    public static RoutingChatOptions of(RoutingProperties.Tier tier) {
+        return of(tier, new OpenAiChatOptions());
+    }
+
+    public static RoutingChatOptions of(RoutingProperties.Tier tier, OpenAiChatOptions options) {
+        RoutingChatOptions routingOptions = ModelOptionsUtils.mergeBeans(options, new RoutingChatOptions(),
+                OpenAiChatOptions.class, true);
+        routingOptions.tier = tier;
+        return routingOptions;
+    }
+
+    @JsonIgnore
+    public RoutingProperties.Tier getTier() {
+        return tier;
+    }
+
+    @Override
+    public RoutingChatOptions copy() {
+        return of(tier, this);
+    }
+}
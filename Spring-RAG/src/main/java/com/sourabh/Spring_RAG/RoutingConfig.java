@@ -0,0 +1,19 @@
+package com.sourabh.Spring_RAG;
+
+import org.springframework.ai.openai.OpenAiChatModel;
+import org.springframework.ai.tokenizer.JTokkitTokenCountEstimator;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+@Configuration
+@EnableConfigurationProperties(RoutingProperties.class)
+public class RoutingConfig {
+
+    @Bean
+    @Primary
+    RoutingChatModel routingChatModel(OpenAiChatModel openAiChatModel, RoutingProperties routingProperties) {
+        return new RoutingChatModel(openAiChatModel, new JTokkitTokenCountEstimator(), routingProperties);
+    }
+}
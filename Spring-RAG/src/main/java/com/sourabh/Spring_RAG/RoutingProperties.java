@@ -0,0 +1,31 @@
+package com.sourabh.Spring_RAG;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.util.List;
+
+/**
+ * Models the {@link RoutingChatModel} can send a prompt to. Prompts up to
+ * {@code fastMaxPromptTokens} that do not ask for a tier are treated as {@link Tier#FAST}.
+ * With {@code crossTierFallback} a prompt falls back to models of the other tier once those of
+ * its own tier failed.
+ */
+@ConfigurationProperties(prefix = "app.routing")
+public record RoutingProperties(@DefaultValue("500") int fastMaxPromptTokens,
+                                @DefaultValue("false") boolean crossTierFallback,
+                                List<Route> routes) {
+
+    public RoutingProperties {
+        if (routes == null || routes.isEmpty()) {
+            throw new IllegalArgumentException("At least one app.routing.routes entry is required");
+        }
+    }
+
+    public enum Tier { FAST, QUALITY }
+
+    public record Route(String model, Tier tier,
+                        @DefaultValue("128000") int maxPromptTokens,
+                        @DefaultValue("16") int maxConcurrent) {
+    }
+}
@@ -0,0 +1,270 @@
+package com.sourabh.Spring_RAG;
+
+import com.knuddels.jtokkit.api.Encoding;
+import com.knuddels.jtokkit.api.IntArrayList;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.transformer.splitter.TextSplitter;
+
+import java.text.BreakIterator;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Token-bounded splitter that cuts on sentence and paragraph boundaries.
+ * <p>
+ * Like {@code TokenTextSplitter} it encodes each document once, but instead of decoding every
+ * chunk back into a string it maps the tokens to the character offsets where they start. A
+ * sentence owns the tokens whose first non-blank character lies inside it, so the sentence
+ * counts add up to the token count of the whole text, and long sentences are cut on token
+ * boundaries. Chunks are assembled
+ * from the offset arrays and each chunk's text is copied out of the document once. Consecutive
+ * chunks share up to {@code overlap} tokens of whole sentences, except across a paragraph
+ * break. Separate documents are split in parallel.
+ */
+public class SentenceTokenTextSplitter extends TextSplitter {
+
+    private static final int MIN_CHUNK_LENGTH_TO_EMBED = 5;
+
+    // Covers the ids of the cl100k and o200k vocabularies
+    private static final int TOKEN_LENGTH_CACHE_SIZE = 1 << 18;
+
+    private final Encoding encoding;
+    private final int chunkSize;
+    private final int overlap;
+    private final int minChunkSize;
+
+    // UTF-8 length of each token id, 0 until first decoded. Racing threads store the same value.
+    private final byte[] tokenByteLengths = new byte[TOKEN_LENGTH_CACHE_SIZE];
+
+    public SentenceTokenTextSplitter(Encoding encoding, int chunkSize, int overlap, int minChunkSize) {
+        if (overlap >= chunkSize) {
+            throw new IllegalArgumentException("Overlap must be smaller than the chunk size");
+        }
+        this.encoding = encoding;
+        this.chunkSize = chunkSize;
+        this.overlap = overlap;
+        this.minChunkSize = minChunkSize;
+    }
+
+    @Override
+    public List<Document> apply(List<Document> documents) {
+        if (documents.size() < 2) {
+            return super.apply(documents);
+        }
+        return documents.parallelStream()
+                .flatMap(document -> super.apply(List.of(document)).stream())
+                .toList();
+    }
+
+    @Override
+    protected List<String> splitText(String text) {
+        Units units = units(text);
+        List<String> chunks = new ArrayList<>();
+
+        int first = 0;
+        int tokens = 0;
+        for (int i = 0; i < units.size; i++) {
+            if (i > first && tokens + units.tokens[i] > chunkSize) {
+                addChunk(chunks, text, units, first, i);
+                // Start the next chunk with the trailing sentences that fit in the overlap
+                int next = i;
+                int overlapTokens = 0;
+                while (next - 1 > first && overlapTokens + units.tokens[next - 1] <= overlap) {
+                    overlapTokens += units.tokens[--next];
+                }
+                while (next < i && overlapTokens + units.tokens[i] > chunkSize) {
+                    overlapTokens -= units.tokens[next++];
+                }
+                first = next;
+                tokens = overlapTokens;
+            }
+            tokens += units.tokens[i];
+            if (units.paragraphEnd[i] && tokens >= minChunkSize) {
+                addChunk(chunks, text, units, first, i + 1);
+                first = i + 1;
+                tokens = 0;
+            }
+        }
+        if (first < units.size) {
+            addChunk(chunks, text, units, first, units.size);
+        }
+        return chunks;
+    }
+
+    private static void addChunk(List<String> chunks, String text, Units units, int first, int end) {
+        int start = units.starts[first];
+        int stop = units.ends[end - 1];
+        while (start < stop && Character.isWhitespace(text.charAt(start))) {
+            start++;
+        }
+        while (stop > start && Character.isWhitespace(text.charAt(stop - 1))) {
+            stop--;
+        }
+        if (stop - start > MIN_CHUNK_LENGTH_TO_EMBED) {
+            chunks.add(text.substring(start, stop));
+        }
+    }
+
+    /**
+     * Sentence offsets and token counts. Sentences longer than a chunk are cut into pieces at a
+     * token that starts a word where possible.
+     */
+    private Units units(String text) {
+        int[] tokenStarts = tokenStarts(text);
+        int tokenCount = tokenStarts.length - 1;
+        Units units = new Units(Math.max(16, text.length() / 100));
+        BreakIterator iterator = BreakIterator.getSentenceInstance(Locale.ENGLISH);
+        iterator.setText(text);
+        int token = 0;
+        int start = iterator.first();
+        for (int end = iterator.next(); end != BreakIterator.DONE; start = end, end = iterator.next()) {
+            boolean paragraphEnd = endsParagraph(text, start, end);
+            int firstToken = token;
+            while (token < tokenCount && anchor(text, tokenStarts, token) < end) {
+                token++;
+            }
+            if (token - firstToken <= chunkSize) {
+                units.add(start, end, token - firstToken, paragraphEnd);
+            }
+            else {
+                addPieces(units, text, tokenStarts, firstToken, token, start, end, paragraphEnd);
+            }
+        }
+        return units;
+    }
+
+    private void addPieces(Units units, String text, int[] tokenStarts, int firstToken, int endToken,
+                           int start, int end, boolean paragraphEnd) {
+        int pieceStart = start;
+        for (int from = firstToken; from < endToken; ) {
+            int to = Math.min(from + chunkSize, endToken);
+            if (to < endToken) {
+                for (int k = to; k > from + 1; k--) {
+                    if (Character.isWhitespace(text.charAt(tokenStarts[k]))) {
+                        to = k;
+                        break;
+                    }
+                }
+            }
+            int pieceEnd = to < endToken ? tokenStarts[to] : end;
+            units.add(pieceStart, pieceEnd, to - from, paragraphEnd && to == endToken);
+            pieceStart = pieceEnd;
+            from = to;
+        }
+    }
+
+    /**
+     * Where a token belongs: its first non-blank character, so a token such as {@code " The"}
+     * counts for the sentence it starts rather than the one before the space.
+     */
+    private static int anchor(String text, int[] tokenStarts, int token) {
+        int i = tokenStarts[token];
+        while (i < tokenStarts[token + 1] && Character.isWhitespace(text.charAt(i))) {
+            i++;
+        }
+        return i < tokenStarts[token + 1] ? i : tokenStarts[token];
+    }
+
+    /**
+     * Encodes the text once and returns the character offset where each token starts, followed
+     * by the text length. A token that starts inside a multi-byte character maps to the start of
+     * that character.
+     */
+    private int[] tokenStarts(String text) {
+        IntArrayList tokens = encoding.encodeOrdinary(text);
+        int[] starts = new int[tokens.size() + 1];
+        IntArrayList single = new IntArrayList(1);
+        int charIndex = 0;
+        long bytesBeforeChar = 0;
+        long tokenByteStart = 0;
+        for (int t = 0; t < tokens.size(); t++) {
+            while (charIndex < text.length()) {
+                int codePoint = text.codePointAt(charIndex);
+                int length = utf8Length(codePoint);
+                if (bytesBeforeChar + length > tokenByteStart) {
+                    break;
+                }
+                bytesBeforeChar += length;
+                charIndex += Character.charCount(codePoint);
+            }
+            starts[t] = charIndex;
+            tokenByteStart += byteLength(tokens.get(t), single);
+        }
+        starts[tokens.size()] = text.length();
+        return starts;
+    }
+
+    private int byteLength(int token, IntArrayList single) {
+        if (token >= 0 && token < tokenByteLengths.length && tokenByteLengths[token] != 0) {
+            return tokenByteLengths[token];
+        }
+        single.clear();
+        single.add(token);
+        int length = encoding.decodeBytes(single).length;
+        if (token >= 0 && token < tokenByteLengths.length && length <= Byte.MAX_VALUE) {
+            tokenByteLengths[token] = (byte) length;
+        }
+        return length;
+    }
+
+    private static int utf8Length(int codePoint) {
+        if (codePoint < 0x80) {
+            return 1;
+        }
+        if (codePoint < 0x800) {
+            return 2;
+        }
+        if (Character.isSurrogate((char) codePoint)) {
+            // A lone surrogate is encoded as '?'
+            return 1;
+        }
+        return codePoint < 0x10000 ? 3 : 4;
+    }
+
+    /**
+     * Whether the whitespace around the end of the sentence holds a blank line.
+     */
+    private static boolean endsParagraph(String text, int start, int end) {
+        int newlines = 0;
+        for (int i = end - 1; i >= start && Character.isWhitespace(text.charAt(i)); i--) {
+            newlines += text.charAt(i) == '\n' ? 1 : 0;
+        }
+        for (int i = end; i < text.length() && Character.isWhitespace(text.charAt(i)); i++) {
+            newlines += text.charAt(i) == '\n' ? 1 : 0;
+        }
+        return newlines >= 2;
+    }
+
+    private static class Units {
+
+        int[] starts;
+        int[] ends;
+        int[] tokens;
+        boolean[] paragraphEnd;
+        int size;
+
+        Units(int capacity) {
+            starts = new int[capacity];
+            ends = new int[capacity];
+            tokens = new int[capacity];
+            paragraphEnd = new boolean[capacity];
+        }
+
+        void add(int start, int end, int tokenCount, boolean endsParagraph) {
+            if (size == starts.length) {
+                int capacity = size * 2;
+                starts = Arrays.copyOf(starts, capacity);
+                ends = Arrays.copyOf(ends, capacity);
+                tokens = Arrays.copyOf(tokens, capacity);
+                paragraphEnd = Arrays.copyOf(paragraphEnd, capacity);
+            }
+            starts[size] = start;
+            ends[size] = end;
+            tokens[size] = tokenCount;
+            paragraphEnd[size] = endsParagraph;
+            size++;
+        }
+    }
+}
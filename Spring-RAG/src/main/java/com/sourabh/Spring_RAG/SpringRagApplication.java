@@ -2,8 +2,10 @@ package com.sourabh.Spring_RAG;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.annotation.ImportRuntimeHints;
 
 @SpringBootApplication
+@ImportRuntimeHints(RagRuntimeHints.class)
 public class SpringRagApplication {
 
 	public static void main(String[] args) {
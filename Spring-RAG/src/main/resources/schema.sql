@@ -0,0 +1,32 @@
+CREATE TABLE IF NOT EXISTS ingestion_job (
+    id           BIGSERIAL PRIMARY KEY,
+    collection   TEXT        NOT NULL DEFAULT 'default',
+    file_name    TEXT        NOT NULL,
+    content_hash CHAR(64)    NOT NULL,
+    content      BYTEA,
+    status       VARCHAR(16) NOT NULL DEFAULT 'PENDING',
+    attempts     INT         NOT NULL DEFAULT 0,
+    last_error   TEXT,
+    available_at TIMESTAMPTZ NOT NULL DEFAULT now(),
+    locked_at    TIMESTAMPTZ,
+    locked_by    TEXT,
+    created_at   TIMESTAMPTZ NOT NULL DEFAULT now(),
+    updated_at   TIMESTAMPTZ NOT NULL DEFAULT now()
+);
+
+-- Tables created before collections existed were unique on content_hash alone
+ALTER TABLE ingestion_job ADD COLUMN IF NOT EXISTS collection TEXT NOT NULL DEFAULT 'default';
+ALTER TABLE ingestion_job DROP CONSTRAINT IF EXISTS ingestion_job_content_hash_key;
+CREATE UNIQUE INDEX IF NOT EXISTS ingestion_job_collection_content_hash_key ON ingestion_job (collection, content_hash);
+
+-- Lease of the claim that holds a processing job, older tables were created without it
+ALTER TABLE ingestion_job ADD COLUMN IF NOT EXISTS locked_by TEXT;
+
+CREATE INDEX IF NOT EXISTS ingestion_job_due_idx ON ingestion_job (id) WHERE status = 'PENDING';
+
+CREATE TABLE IF NOT EXISTS conversation (
+    id         TEXT PRIMARY KEY,
+    summary    TEXT,
+    turns      TEXT        NOT NULL,
+    updated_at TIMESTAMPTZ NOT NULL DEFAULT now()
+);
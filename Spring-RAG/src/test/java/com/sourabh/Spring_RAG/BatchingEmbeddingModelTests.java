@@ -0,0 +1,77 @@
+package com.sourabh.Spring_RAG;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class BatchingEmbeddingModelTests {
+
+    private EmbeddingModel delegate;
+    private BatchingEmbeddingModel embeddingModel;
+
+    @BeforeEach
+    void setUp() {
+        delegate = mock(EmbeddingModel.class);
+        // Embeds every text as a one-dimensional vector holding its length
+        when(delegate.call(any(EmbeddingRequest.class))).thenAnswer(invocation -> {
+            EmbeddingRequest request = invocation.getArgument(0);
+            List<Embedding> embeddings = new ArrayList<>();
+            for (String text : request.getInstructions()) {
+                embeddings.add(new Embedding(new float[] { text.length() }, embeddings.size()));
+            }
+            return new EmbeddingResponse(embeddings);
+        });
+        embeddingModel = new BatchingEmbeddingModel(delegate, 2);
+    }
+
+    @Test
+    void call_moreInputsThanBatchSize_embedsInBatchesAndKeepsInputOrder() {
+        // Act
+        EmbeddingResponse response = embeddingModel.call(new EmbeddingRequest(List.of("a", "bb", "ccc", "dddd", "eeeee"), null));
+
+        // Assert
+        verify(delegate, times(3)).call(any(EmbeddingRequest.class));
+        assertThat(response.getResults()).extracting(Embedding::getIndex).containsExactly(0, 1, 2, 3, 4);
+        assertThat(response.getResults()).extracting(embedding -> embedding.getOutput()[0])
+                .containsExactly(1f, 2f, 3f, 4f, 5f);
+    }
+
+    @Test
+    void call_moreInputsThanBatchSize_embedsBatchesOnTheCallingThread() {
+        // Arrange
+        List<Thread> threads = new ArrayList<>();
+        when(delegate.call(any(EmbeddingRequest.class))).thenAnswer(invocation -> {
+            threads.add(Thread.currentThread());
+            return new EmbeddingResponse(List.of(new Embedding(new float[] { 1f }, 0)));
+        });
+
+        // Act
+        embeddingModel.call(new EmbeddingRequest(List.of("a", "bb", "ccc"), null));
+
+        // Assert
+        assertThat(threads).hasSize(2).containsOnly(Thread.currentThread());
+    }
+
+    @Test
+    void call_singleBatch_delegatesDirectly() {
+        // Act
+        EmbeddingResponse response = embeddingModel.call(new EmbeddingRequest(List.of("query"), null));
+
+        // Assert
+        verify(delegate, times(1)).call(any(EmbeddingRequest.class));
+        assertThat(response.getResult().getOutput()).containsExactly(5f);
+    }
+}
@@ -3,104 +3,112 @@ package com.sourabh.Spring_RAG;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.ai.chat.client.ChatClient;
-import org.springframework.ai.chat.client.advisor.QuestionAnswerAdvisor;
-import org.springframework.ai.vectorstore.PgVectorStore; // Assuming this is the correct VectorStore implementation used
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.tokenizer.JTokkitTokenCountEstimator;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.ai.vectorstore.pgvector.PgVectorStore;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
-import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.ArgumentMatchers.anyString;
-import static org.mockito.Mockito.when;
-import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
 class ChatControllerTests {
 
     @Mock
-    private ChatClient.Builder chatClientBuilder;
+    private ChatModel chatModel;
 
     @Mock
-    private ChatClient chatClient;
+    private PgVectorStore defaultStore;
 
-    // Mocks for the fluent API chain
     @Mock
-    private ChatClient.PromptSpec mockPromptSpec;
-    @Mock
-    private ChatClient.CallSpec mockCallSpec;
+    private CollectionRegistry collections;
+
     @Mock
-    private ChatClient.ResponseSpec mockResponseSpec;
+    private VectorStore vectorStore;
 
     @Mock
-    private PgVectorStore vectorStore; // As per ChatController constructor
+    private ConversationMemory conversationMemory;
 
-    @InjectMocks
     private ChatController chatController;
 
     @BeforeEach
     void setUp() {
-        // Mock the ChatClient.Builder fluent API and build() method
-        // This setup assumes ChatController receives ChatClient.Builder and calls .build()
-        when(chatClientBuilder.defaultAdvisors(any(QuestionAnswerAdvisor.class))).thenReturn(chatClientBuilder);
-        when(chatClientBuilder.build()).thenReturn(chatClient);
-        
-        // If @InjectMocks is used, and ChatController's constructor takes ChatClient.Builder,
-        // Mockito will use the chatClientBuilder mock. The controller will then call .build()
-        // internally, which we've mocked to return our chatClient mock.
-        // So, no manual instantiation of chatController is typically needed here.
-        // If manual instantiation was needed:
-        // chatController = new ChatController(chatClientBuilder, vectorStore);
+        ContextPackingAdvisor contextPackingAdvisor = new ContextPackingAdvisor(collections, new LexicalReranker(),
+                new ContextPacker(new JTokkitTokenCountEstimator(), 1_000, 0.7, 0.9, 2), 10, 4, 0.5);
+        chatController = new ChatController(ChatClient.builder(chatModel), defaultStore, contextPackingAdvisor,
+                new ConversationMemoryAdvisor(conversationMemory));
+        ReflectionTestUtils.setField(chatController, "ragDeadline", Duration.ofSeconds(60));
+
+        when(collections.existing(CollectionRegistry.DEFAULT)).thenReturn(vectorStore);
+        when(vectorStore.similaritySearch(any(SearchRequest.class))).thenReturn(List.of(
+                new Document("The federal reserve cut the interest rate by half a point, and bonds rallied.")));
     }
 
     @Test
-    void testChat_success() {
+    void chat_answersFromTheRetrievedContextOnTheQualityTier() {
         // Arrange
-        String testMessage = "Tell me a joke";
-        String expectedResponse = "Mocked AI Response";
-
-        // Mock the fluent API chain for chatClient
-        when(chatClient.prompt()).thenReturn(mockPromptSpec);
-        when(mockPromptSpec.user(anyString())).thenReturn(mockCallSpec);
-        when(mockCallSpec.call()).thenReturn(mockResponseSpec);
-        when(mockResponseSpec.content()).thenReturn(expectedResponse);
+        when(chatModel.call(any(Prompt.class))).thenReturn(response("Bonds rallied."));
 
         // Act
-        String actualResponse = chatController.chat(testMessage);
+        String answer = chatController.chat(CollectionRegistry.DEFAULT).block();
 
         // Assert
-        assertThat(actualResponse).isEqualTo(expectedResponse);
+        assertThat(answer).isEqualTo("Bonds rallied.");
+        ArgumentCaptor<Prompt> prompt = ArgumentCaptor.forClass(Prompt.class);
+        verify(chatModel).call(prompt.capture());
+        assertThat(prompt.getValue().getUserMessage().getText()).contains("bonds rallied");
+        assertThat(prompt.getValue().getOptions()).isInstanceOfSatisfying(RoutingChatOptions.class,
+                options -> assertThat(options.getTier()).isEqualTo(RoutingProperties.Tier.QUALITY));
+        verifyNoInteractions(conversationMemory);
+    }
+
+    @Test
+    void converse_recordsTheTurnInTheConversation() {
+        // Arrange
+        when(conversationMemory.snapshot("c1")).thenReturn(ConversationMemory.Snapshot.EMPTY);
+        when(chatModel.call(any(Prompt.class))).thenReturn(response("Bonds rallied."));
+
+        // Act
+        String answer = chatController.converse("c1", "What did bonds do?", CollectionRegistry.DEFAULT).block();
 
-        // Verify interactions
-        verify(chatClient).prompt();
-        verify(mockPromptSpec).user(testMessage); // Verify with the exact message
-        verify(mockCallSpec).call();
-        verify(mockResponseSpec).content();
+        // Assert
+        assertThat(answer).isEqualTo("Bonds rallied.");
+        verify(conversationMemory).append("c1", new ConversationMemory.Turn("What did bonds do?", "Bonds rallied."));
     }
 
     @Test
-    void testChat_clientError() {
+    void streamConversation_streamsTheAnswerAndRecordsIt() {
         // Arrange
-        String testMessage = "This will cause an error";
-        RuntimeException expectedException = new RuntimeException("ChatClient failed");
-
-        // Mock the fluent API chain to throw an exception at the call() stage
-        when(chatClient.prompt()).thenReturn(mockPromptSpec);
-        when(mockPromptSpec.user(anyString())).thenReturn(mockCallSpec);
-        when(mockCallSpec.call()).thenThrow(expectedException);
-
-        // Act & Assert
-        assertThatThrownBy(() -> chatController.chat(testMessage))
-                .isInstanceOf(RuntimeException.class)
-                .isEqualTo(expectedException); // Check if it's the same exception instance
-
-        // Verify interactions up to the point of failure
-        verify(chatClient).prompt();
-        verify(mockPromptSpec).user(testMessage);
-        verify(mockCallSpec).call();
-        // mockResponseSpec.content() should not be called
-        verify(mockResponseSpec, org.mockito.Mockito.never()).content();
+        when(conversationMemory.snapshot("c1")).thenReturn(ConversationMemory.Snapshot.EMPTY);
+        when(chatModel.stream(any(Prompt.class))).thenReturn(Flux.just(response("Bonds "), response("rallied.")));
+
+        // Act
+        List<String> tokens = chatController.streamConversation("c1", "What did bonds do?", CollectionRegistry.DEFAULT)
+                .collectList()
+                .block();
+
+        // Assert
+        assertThat(tokens).containsExactly("Bonds ", "rallied.");
+        verify(conversationMemory).append("c1", new ConversationMemory.Turn("What did bonds do?", "Bonds rallied."));
+    }
+
+    private static ChatResponse response(String text) {
+        return new ChatResponse(List.of(new Generation(new AssistantMessage(text))));
     }
 }
@@ -0,0 +1,82 @@
+package com.sourabh.Spring_RAG;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.vectorstore.pgvector.PgVectorStore;
+import org.springframework.ai.vectorstore.pgvector.autoconfigure.PgVectorStoreProperties;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CollectionRegistryTests {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private EmbeddingModel embeddingModel;
+
+    @Mock
+    private PgVectorStore defaultStore;
+
+    private final PgVectorStoreProperties properties = new PgVectorStoreProperties();
+
+    private CollectionRegistry collections;
+
+    @BeforeEach
+    void setUp() {
+        collections = spy(new CollectionRegistry(jdbcTemplate, embeddingModel, defaultStore, properties));
+    }
+
+    @Test
+    void existing_defaultCollection_returnsAutoConfiguredStore() {
+        // Act & Assert
+        assertThat(collections.existing(CollectionRegistry.DEFAULT)).isSameAs(defaultStore);
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    @Test
+    void existing_collectionWithoutTable_isNotFound() {
+        // Arrange
+        when(jdbcTemplate.queryForObject("SELECT to_regclass(?) IS NOT NULL", Boolean.class, "public.vector_store_acme"))
+                .thenReturn(false);
+
+        // Act & Assert
+        assertThatThrownBy(() -> collections.existing("acme"))
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND));
+        verify(collections, never()).create("acme");
+    }
+
+    @Test
+    void getOrCreate_sameCollectionTwice_createsItsStoreOnce() {
+        // Arrange
+        PgVectorStore acmeStore = mock(PgVectorStore.class);
+        doReturn(acmeStore).when(collections).create("acme");
+
+        // Act
+        collections.getOrCreate("acme");
+        collections.getOrCreate("acme");
+
+        // Assert
+        assertThat(collections.getOrCreate("acme")).isSameAs(acmeStore);
+        verify(collections, times(1)).create("acme");
+    }
+
+    @Test
+    void validate_nameThatCouldEscapeTheTableName_isRejected() {
+        // Act & Assert
+        assertThatThrownBy(() -> CollectionRegistry.validate("acme; drop table x"))
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST));
+    }
+}
@@ -0,0 +1,101 @@
+package com.sourabh.Spring_RAG;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.tokenizer.JTokkitTokenCountEstimator;
+import org.springframework.ai.tokenizer.TokenCountEstimator;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ContextPackerTests {
+
+    private static final String QUERY = "How did the federal reserve rate cut impact equities and bonds";
+
+    private final TokenCountEstimator tokenCountEstimator = new JTokkitTokenCountEstimator();
+
+    @Test
+    void pack_nearIdenticalChunks_keepsOnlyOne() {
+        // Arrange
+        ContextPacker contextPacker = new ContextPacker(tokenCountEstimator, 1_000, 0.7, 0.9, 2);
+        Document original = document("1", 0.92, "The federal reserve rate cut lifted equities. Bonds rallied after the cut.");
+        Document duplicate = document("2", 0.91, "The federal reserve rate cut lifted equities. Bonds rallied after the cut!");
+        Document different = document("3", 0.80, "Gold prices rose as the dollar weakened after the federal reserve decision.");
+
+        // Act
+        List<Document> packed = contextPacker.pack(QUERY, List.of(original, duplicate, different));
+
+        // Assert
+        assertThat(packed).extracting(Document::getId).containsExactly("1", "3");
+    }
+
+    @Test
+    void pack_chunkWithUnrelatedSentences_keepsOnlySentencesMentioningTheQuery() {
+        // Arrange
+        ContextPacker contextPacker = new ContextPacker(tokenCountEstimator, 1_000, 0.7, 0.9, 2);
+        Document chunk = document("1", 0.9, "Equities gained four percent in October. "
+                + "The report was written by the strategy team in London. "
+                + "Bonds sold off as yields rose.");
+
+        // Act
+        List<Document> packed = contextPacker.pack(QUERY, List.of(chunk));
+
+        // Assert
+        assertThat(packed).singleElement()
+                .extracting(Document::getText)
+                .isEqualTo("Equities gained four percent in October. Bonds sold off as yields rose.");
+    }
+
+    @Test
+    void pack_chunkWithoutQueryTerms_keepsOpeningSentences() {
+        // Arrange
+        ContextPacker contextPacker = new ContextPacker(tokenCountEstimator, 1_000, 0.7, 0.9, 1);
+        Document chunk = document("1", 0.9, "Markets were calm. Volatility stayed low. Credit spreads tightened.");
+
+        // Act
+        List<Document> packed = contextPacker.pack(QUERY, List.of(chunk));
+
+        // Assert
+        assertThat(packed).singleElement().extracting(Document::getText).isEqualTo("Markets were calm.");
+    }
+
+    @Test
+    void pack_moreContextThanBudget_stopsAtTheBudget() {
+        // Arrange
+        ContextPacker contextPacker = new ContextPacker(tokenCountEstimator, 40, 0.7, 0.9, 2);
+        List<Document> candidates = List.of(
+                document("1", 0.9, "The rate cut pushed equities to record highs across developed markets."),
+                document("2", 0.8, "Bonds benefited from the federal reserve easing cycle and lower yields."),
+                document("3", 0.7, "Emerging market equities lagged because of the stronger dollar in the quarter."));
+
+        // Act
+        List<Document> packed = contextPacker.pack(QUERY, candidates);
+
+        // Assert
+        int tokens = packed.stream().mapToInt(document -> tokenCountEstimator.estimate(document.getText())).sum();
+        assertThat(tokens).isLessThanOrEqualTo(40);
+        assertThat(packed).extracting(Document::getId).containsExactly("1", "2");
+    }
+
+    @Test
+    void pack_chunkOverTheRemainingBudget_stillPacksLaterChunksThatFit() {
+        // Arrange
+        ContextPacker contextPacker = new ContextPacker(tokenCountEstimator, 30, 0.7, 0.9, 2);
+        List<Document> candidates = List.of(
+                document("1", 0.9, "The rate cut pushed equities to record highs."),
+                document("2", 0.8, "Bonds benefited from the federal reserve easing cycle, lower yields, tighter "
+                        + "credit spreads, strong inflows into duration funds and a softer inflation outlook."),
+                document("3", 0.7, "Bonds rallied."));
+
+        // Act
+        List<Document> packed = contextPacker.pack(QUERY, candidates);
+
+        // Assert
+        assertThat(packed).extracting(Document::getId).containsExactly("1", "3");
+    }
+
+    private static Document document(String id, double score, String text) {
+        return Document.builder().id(id).text(text).score(score).build();
+    }
+}
@@ -0,0 +1,134 @@
+package com.sourabh.Spring_RAG;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.SystemMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.Prompt;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ConversationMemoryAdvisorTests {
+
+    @Mock
+    private ChatModel chatModel;
+
+    @Mock
+    private ConversationMemory conversationMemory;
+
+    private ChatClient chatClient;
+
+    @BeforeEach
+    void setUp() {
+        chatClient = ChatClient.builder(chatModel)
+                .defaultAdvisors(new ConversationMemoryAdvisor(conversationMemory))
+                .build();
+    }
+
+    @Test
+    void call_withConversationId_replaysHistoryAndRecordsTheTurn() {
+        // Arrange
+        when(conversationMemory.snapshot("c1")).thenReturn(new ConversationMemory.Snapshot("Likes cats",
+                List.of(new ConversationMemory.Turn("Hi", "Hello"))));
+        when(chatModel.call(any(Prompt.class))).thenReturn(response("Purr"));
+
+        // Act
+        String answer = chatClient.prompt()
+                .system("Be brief.")
+                .user(userSpec -> userSpec.text("Tell me about {animal}").param("animal", "cats"))
+                .advisors(advisorSpec -> advisorSpec.param(ConversationMemoryAdvisor.CONVERSATION_ID, "c1"))
+                .call()
+                .content();
+
+        // Assert
+        assertThat(answer).isEqualTo("Purr");
+        ArgumentCaptor<Prompt> prompt = ArgumentCaptor.forClass(Prompt.class);
+        verify(chatModel).call(prompt.capture());
+        List<Message> messages = prompt.getValue().getInstructions();
+        assertThat(messages).hasSize(4);
+        assertThat(messages.get(0)).isInstanceOf(SystemMessage.class);
+        assertThat(messages.get(0).getText()).startsWith("Be brief.").contains("Likes cats");
+        assertThat(messages.get(1)).isInstanceOf(UserMessage.class).extracting(Message::getText).isEqualTo("Hi");
+        assertThat(messages.get(2)).isInstanceOf(AssistantMessage.class).extracting(Message::getText).isEqualTo("Hello");
+        assertThat(messages.get(3).getText()).isEqualTo("Tell me about cats");
+        verify(conversationMemory).append("c1", new ConversationMemory.Turn("Tell me about cats", "Purr"));
+    }
+
+    @Test
+    void stream_withConversationId_recordsTheWholeAnswer() {
+        // Arrange
+        when(conversationMemory.snapshot("c1")).thenReturn(ConversationMemory.Snapshot.EMPTY);
+        when(chatModel.stream(any(Prompt.class))).thenReturn(Flux.just(response("Pu"), response("rr")));
+
+        // Act
+        List<String> tokens = chatClient.prompt()
+                .user("Tell me about cats")
+                .advisors(advisorSpec -> advisorSpec.param(ConversationMemoryAdvisor.CONVERSATION_ID, "c1"))
+                .stream()
+                .content()
+                .collectList()
+                .block();
+
+        // Assert
+        assertThat(tokens).containsExactly("Pu", "rr");
+        verify(conversationMemory).append("c1", new ConversationMemory.Turn("Tell me about cats", "Purr"));
+    }
+
+    @Test
+    void stream_withConversationId_touchesMemoryOffTheSubscribingThread() {
+        // Arrange
+        Thread caller = Thread.currentThread();
+        List<Thread> memoryThreads = new CopyOnWriteArrayList<>();
+        when(conversationMemory.snapshot("c1")).thenAnswer(invocation -> {
+            memoryThreads.add(Thread.currentThread());
+            return ConversationMemory.Snapshot.EMPTY;
+        });
+        doAnswer(invocation -> memoryThreads.add(Thread.currentThread())).when(conversationMemory).append(eq("c1"), any());
+        when(chatModel.stream(any(Prompt.class))).thenReturn(Flux.just(response("Purr")));
+
+        // Act
+        chatClient.prompt()
+                .user("Tell me about cats")
+                .advisors(advisorSpec -> advisorSpec.param(ConversationMemoryAdvisor.CONVERSATION_ID, "c1"))
+                .stream()
+                .content()
+                .blockLast();
+
+        // Assert
+        assertThat(memoryThreads).hasSize(2).doesNotContain(caller);
+    }
+
+    @Test
+    void call_withoutConversationId_staysSingleTurn() {
+        // Arrange
+        when(chatModel.call(any(Prompt.class))).thenReturn(response("Purr"));
+
+        // Act
+        chatClient.prompt().user("Tell me about cats").call().content();
+
+        // Assert
+        verifyNoInteractions(conversationMemory);
+    }
+
+    private static ChatResponse response(String text) {
+        return new ChatResponse(List.of(new Generation(new AssistantMessage(text))));
+    }
+}
@@ -0,0 +1,250 @@
+package com.sourabh.Spring_RAG;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ConversationMemoryTests {
+
+    @Mock
+    private ConversationSummarizer summarizer;
+
+    @Mock
+    private JdbcConversationRepository repository;
+
+    private final List<Runnable> pendingTasks = new ArrayList<>();
+    private final Executor executor = pendingTasks::add;
+
+    private ConversationMemory conversationMemory;
+
+    @BeforeEach
+    void setUp() {
+        Clock clock = Clock.fixed(Instant.parse("2026-01-01T00:00:00Z"), ZoneOffset.UTC);
+        conversationMemory = new ConversationMemory(summarizer, Optional.empty(), executor, clock, 2, 100, Duration.ofHours(1));
+    }
+
+    @Test
+    void snapshot_unknownConversation_isEmpty() {
+        // Act & Assert
+        assertThat(conversationMemory.snapshot("c1")).isEqualTo(ConversationMemory.Snapshot.EMPTY);
+    }
+
+    @Test
+    void append_beyondTheWindow_replaysOnlyTheLastTurnsWhileSummarizing() {
+        // Arrange
+        conversationMemory.append("c1", turn(1));
+        conversationMemory.append("c1", turn(2));
+
+        // Act
+        conversationMemory.append("c1", turn(3));
+
+        // Assert
+        ConversationMemory.Snapshot snapshot = conversationMemory.snapshot("c1");
+        assertThat(snapshot.turns()).containsExactly(turn(2), turn(3));
+        assertThat(snapshot.summary()).isNull();
+        assertThat(pendingTasks).hasSize(1);
+        verifyNoInteractions(summarizer);
+    }
+
+    @Test
+    void append_summaryCompletes_foldsOlderTurnsIntoTheSummary() {
+        // Arrange
+        when(summarizer.summarize(null, List.of(turn(1)))).thenReturn("Asked about turn 1.");
+        conversationMemory.append("c1", turn(1));
+        conversationMemory.append("c1", turn(2));
+        conversationMemory.append("c1", turn(3));
+
+        // Act
+        runPendingTasks();
+
+        // Assert
+        ConversationMemory.Snapshot snapshot = conversationMemory.snapshot("c1");
+        assertThat(snapshot.summary()).isEqualTo("Asked about turn 1.");
+        assertThat(snapshot.turns()).containsExactly(turn(2), turn(3));
+    }
+
+    @Test
+    void append_turnsWhileSummarizing_startsOnlyOneSummaryAtATime() {
+        // Arrange
+        when(summarizer.summarize(any(), anyList())).thenReturn("summary");
+        for (int i = 1; i <= 5; i++) {
+            conversationMemory.append("c1", turn(i));
+        }
+
+        // Act
+        runPendingTasks();
+
+        // Assert
+        verify(summarizer).summarize(null, List.of(turn(1)));
+        verify(summarizer).summarize("summary", List.of(turn(2), turn(3)));
+        assertThat(conversationMemory.snapshot("c1").turns()).containsExactly(turn(4), turn(5));
+    }
+
+    @Test
+    void snapshot_evictedConversation_isLoadedFromTheRepository() {
+        // Arrange
+        Clock clock = Clock.fixed(Instant.parse("2026-01-01T00:00:00Z"), ZoneOffset.UTC);
+        conversationMemory = new ConversationMemory(summarizer, Optional.of(repository), executor, clock, 2, 1, Duration.ofHours(1));
+        when(repository.find("c1")).thenReturn(Optional.of(new ConversationMemory.Snapshot("earlier", List.of(turn(1)))));
+
+        // Act
+        ConversationMemory.Snapshot snapshot = conversationMemory.snapshot("c1");
+
+        // Assert
+        assertThat(snapshot.summary()).isEqualTo("earlier");
+        assertThat(snapshot.turns()).containsExactly(turn(1));
+    }
+
+    @Test
+    void snapshot_slowLoad_doesNotHoldUpOtherConversations() throws Exception {
+        // Arrange
+        Clock clock = Clock.fixed(Instant.parse("2026-01-01T00:00:00Z"), ZoneOffset.UTC);
+        conversationMemory = new ConversationMemory(summarizer, Optional.of(repository), executor, clock, 2, 100, Duration.ofHours(1));
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(repository.find("slow")).thenAnswer(invocation -> {
+            loading.countDown();
+            release.await();
+            return Optional.empty();
+        });
+        when(repository.find("fast")).thenReturn(Optional.of(new ConversationMemory.Snapshot("earlier", List.of(turn(1)))));
+        CompletableFuture<ConversationMemory.Snapshot> slow = CompletableFuture.supplyAsync(() -> conversationMemory.snapshot("slow"));
+        assertThat(loading.await(5, TimeUnit.SECONDS)).isTrue();
+
+        // Act
+        ConversationMemory.Snapshot fast = CompletableFuture.supplyAsync(() -> conversationMemory.snapshot("fast"))
+                .get(5, TimeUnit.SECONDS);
+
+        // Assert
+        assertThat(fast.summary()).isEqualTo("earlier");
+        release.countDown();
+        assertThat(slow.get(5, TimeUnit.SECONDS)).isEqualTo(ConversationMemory.Snapshot.EMPTY);
+    }
+
+    @Test
+    void append_whileAWriteIsPending_storesTheLatestStateOnce() {
+        // Arrange
+        Clock clock = Clock.fixed(Instant.parse("2026-01-01T00:00:00Z"), ZoneOffset.UTC);
+        conversationMemory = new ConversationMemory(summarizer, Optional.of(repository), executor, clock, 2, 100, Duration.ofHours(1));
+        conversationMemory.append("c1", turn(1));
+
+        // Act
+        conversationMemory.append("c1", turn(2));
+        runPendingTasks();
+
+        // Assert
+        verify(repository).save("c1", new ConversationMemory.Snapshot(null, List.of(turn(1), turn(2))));
+        verifyNoMoreInteractions(summarizer);
+    }
+
+    @Test
+    void snapshot_conversationEvictedWithAWritePending_keepsItsUnsavedTurns() {
+        // Arrange
+        Clock clock = Clock.fixed(Instant.parse("2026-01-01T00:00:00Z"), ZoneOffset.UTC);
+        conversationMemory = new ConversationMemory(summarizer, Optional.of(repository), executor, clock, 2, 1, Duration.ofHours(1));
+        conversationMemory.append("c1", turn(1));
+        conversationMemory.append("c2", turn(2));
+
+        // Act
+        ConversationMemory.Snapshot snapshot = conversationMemory.snapshot("c1");
+
+        // Assert
+        assertThat(snapshot.turns()).containsExactly(turn(1));
+        verify(repository, times(1)).find("c1");
+    }
+
+    @Test
+    void snapshot_conversationEvictedAfterItsWrite_isLoadedFromTheRepository() {
+        // Arrange
+        Clock clock = Clock.fixed(Instant.parse("2026-01-01T00:00:00Z"), ZoneOffset.UTC);
+        conversationMemory = new ConversationMemory(summarizer, Optional.of(repository), executor, clock, 2, 1, Duration.ofHours(1));
+        conversationMemory.append("c1", turn(1));
+        conversationMemory.append("c2", turn(2));
+        runPendingTasks();
+        when(repository.find("c1")).thenReturn(Optional.of(new ConversationMemory.Snapshot(null, List.of(turn(1)))));
+
+        // Act
+        ConversationMemory.Snapshot snapshot = conversationMemory.snapshot("c1");
+
+        // Assert
+        assertThat(snapshot.turns()).containsExactly(turn(1));
+        verify(repository, times(2)).find("c1");
+    }
+
+    @Test
+    void evictIdle_dropsConversationsWithoutARecentTurn() {
+        // Arrange
+        MutableClock clock = new MutableClock(Instant.parse("2026-01-01T00:00:00Z"));
+        conversationMemory = new ConversationMemory(summarizer, Optional.empty(), executor, clock, 2, 100, Duration.ofHours(1));
+        conversationMemory.append("old", turn(1));
+        clock.advance(Duration.ofMinutes(45));
+        conversationMemory.append("recent", turn(2));
+        clock.advance(Duration.ofMinutes(30));
+
+        // Act
+        conversationMemory.evictIdle();
+
+        // Assert
+        assertThat(conversationMemory.size()).isEqualTo(1);
+        assertThat(conversationMemory.snapshot("recent").turns()).containsExactly(turn(2));
+    }
+
+    private void runPendingTasks() {
+        while (!pendingTasks.isEmpty()) {
+            pendingTasks.remove(0).run();
+        }
+    }
+
+    private static ConversationMemory.Turn turn(int i) {
+        return new ConversationMemory.Turn("question " + i, "answer " + i);
+    }
+
+    private static class MutableClock extends Clock {
+
+        private Instant now;
+
+        MutableClock(Instant now) {
+            this.now = now;
+        }
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.sourabh.Spring_RAG;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class IngestionWorkerTests {
+
+    @Mock
+    private IngestionJobRepository jobRepository;
+
+    @Mock
+    private IngestionService ingestionService;
+
+    private IngestionWorker ingestionWorker;
+
+    @BeforeEach
+    void setUp() {
+        ingestionWorker = new IngestionWorker(jobRepository, ingestionService);
+        ReflectionTestUtils.setField(ingestionWorker, "maxJobsPerPoll", 10);
+        ReflectionTestUtils.setField(ingestionWorker, "maxAttempts", 3);
+        ReflectionTestUtils.setField(ingestionWorker, "retryBackoff", Duration.ofMinutes(1));
+        ReflectionTestUtils.setField(ingestionWorker, "lockTimeout", Duration.ofMinutes(15));
+    }
+
+    @Test
+    void poll_claimsJobsUntilTheQueueIsEmpty() {
+        // Arrange
+        when(jobRepository.claim(1)).thenReturn(List.of(job(1)), List.of(job(2)), List.of());
+        when(ingestionService.ingest(anyString(), anyString(), any())).thenReturn(4);
+
+        // Act
+        ingestionWorker.poll();
+
+        // Assert
+        verify(jobRepository).releaseStale(Duration.ofMinutes(15), 3);
+        verify(jobRepository).complete(1, "lease-1");
+        verify(jobRepository).complete(2, "lease-2");
+        verify(jobRepository, times(3)).claim(1);
+    }
+
+    @Test
+    void poll_failingJob_isReportedForRetryOrDeadLetter() {
+        // Arrange
+        when(jobRepository.claim(1)).thenReturn(List.of(job(7)), List.of());
+        when(ingestionService.ingest(anyString(), anyString(), any())).thenThrow(new IllegalArgumentException("No text found in report-7.pdf"));
+
+        // Act
+        ingestionWorker.poll();
+
+        // Assert
+        verify(jobRepository).fail(7, "lease-7", "No text found in report-7.pdf", 3, Duration.ofMinutes(1));
+        verify(jobRepository, never()).complete(anyLong(), anyString());
+    }
+
+    @Test
+    void poll_busyQueue_stopsAfterMaxJobsPerPoll() {
+        // Arrange
+        ReflectionTestUtils.setField(ingestionWorker, "maxJobsPerPoll", 2);
+        when(jobRepository.claim(1)).thenReturn(List.of(job(1)), List.of(job(2)), List.of(job(3)));
+
+        // Act
+        ingestionWorker.poll();
+
+        // Assert
+        verify(jobRepository, times(2)).claim(1);
+        verify(jobRepository, never()).fail(anyLong(), anyString(), anyString(), anyInt(), eq(Duration.ofMinutes(1)));
+    }
+
+    @Test
+    void process_jobLongerThanTheLockTimeout_keepsItsLock() {
+        // Arrange
+        ReflectionTestUtils.setField(ingestionWorker, "lockTimeout", Duration.ofMillis(30));
+        when(ingestionService.ingest(anyString(), anyString(), any())).thenAnswer(invocation -> {
+            Thread.sleep(200);
+            return 4;
+        });
+        when(jobRepository.heartbeat(1, "lease-1")).thenReturn(true);
+
+        // Act
+        ingestionWorker.process(job(1));
+
+        // Assert
+        verify(jobRepository, atLeast(2)).heartbeat(1, "lease-1");
+        verify(jobRepository).complete(1, "lease-1");
+    }
+
+    @Test
+    void process_jobClaimedAgainByAnotherWorker_isLeftToIt() {
+        // Arrange
+        when(ingestionService.ingest(anyString(), anyString(), any())).thenReturn(4);
+        when(jobRepository.complete(1, "lease-1")).thenReturn(false);
+
+        // Act
+        ingestionWorker.process(job(1));
+
+        // Assert
+        verify(jobRepository).complete(1, "lease-1");
+        verify(jobRepository, never()).fail(anyLong(), anyString(), anyString(), anyInt(), any());
+    }
+
+    private static IngestionJob job(long id) {
+        return new IngestionJob(id, CollectionRegistry.DEFAULT, "report-" + id + ".pdf", IngestionJob.Status.PROCESSING, 1, null, null, null,
+                "lease-" + id, new byte[] { 1 });
+    }
+}
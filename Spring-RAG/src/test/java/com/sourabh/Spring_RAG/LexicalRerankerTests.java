@@ -0,0 +1,58 @@
+package com.sourabh.Spring_RAG;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.document.Document;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LexicalRerankerTests {
+
+    private final LexicalReranker reranker = new LexicalReranker();
+
+    @Test
+    void rerank_chunkMatchingTheQueryPhrase_movesAheadOfHigherVectorScore() {
+        // Arrange
+        List<Document> candidates = List.of(
+                document("1", 0.82, "Markets were mixed during the quarter as investors waited for guidance."),
+                document("2", 0.80, "Oil producers cut output and energy stocks rallied."),
+                document("3", 0.78, "The interest rate cut lifted small cap equities while bonds rallied."));
+
+        // Act
+        List<Document> reranked = reranker.rerank("What did the interest rate cut do to equities", candidates, 3);
+
+        // Assert
+        assertThat(reranked).extracting(Document::getId).startsWith("3");
+    }
+
+    @Test
+    void rerank_moreCandidatesThanTopN_keepsOnlyTopN() {
+        // Arrange
+        List<Document> candidates = List.of(
+                document("1", 0.9, "Equities rose."),
+                document("2", 0.8, "Bonds fell."),
+                document("3", 0.7, "Gold was flat."),
+                document("4", 0.6, "The dollar weakened."));
+
+        // Act
+        List<Document> reranked = reranker.rerank("equities and bonds", candidates, 2);
+
+        // Assert
+        assertThat(reranked).extracting(Document::getId).containsExactly("1", "2");
+        assertThat(reranked.get(0).getScore()).isGreaterThanOrEqualTo(reranked.get(1).getScore());
+    }
+
+    @Test
+    void rerank_noCandidates_returnsEmptyList() {
+        // Act
+        List<Document> reranked = reranker.rerank("equities", List.of(), 5);
+
+        // Assert
+        assertThat(reranked).isEmpty();
+    }
+
+    private static Document document(String id, double score, String text) {
+        return Document.builder().id(id).text(text).score(score).build();
+    }
+}
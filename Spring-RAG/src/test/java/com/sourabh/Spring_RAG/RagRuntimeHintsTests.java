@@ -0,0 +1,24 @@
+package com.sourabh.Spring_RAG;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.predicate.RuntimeHintsPredicates;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RagRuntimeHintsTests {
+
+    @Test
+    void registerHints_registersBindingHintsForConversationTurnsAndRoutingOptions() throws Exception {
+        // Arrange
+        RuntimeHints hints = new RuntimeHints();
+
+        // Act
+        new RagRuntimeHints().registerHints(hints, getClass().getClassLoader());
+
+        // Assert
+        assertThat(RuntimeHintsPredicates.reflection().onType(ConversationMemory.Turn.class)).accepts(hints);
+        assertThat(RuntimeHintsPredicates.reflection().onMethod(ConversationMemory.Turn.class.getMethod("assistant"))).accepts(hints);
+        assertThat(RuntimeHintsPredicates.reflection().onMethod(RoutingChatOptions.class.getMethod("getTier"))).accepts(hints);
+    }
+}
@@ -0,0 +1,406 @@
+package com.sourabh.Spring_RAG;
+
+import io.micrometer.observation.ObservationRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.ai.chat.client.ChatClientRequest;
+import org.springframework.ai.chat.client.ChatClientResponse;
+import org.springframework.ai.chat.client.advisor.DefaultAroundAdvisorChain;
+import org.springframework.ai.chat.client.advisor.api.Advisor;
+import org.springframework.ai.chat.client.advisor.api.CallAdvisor;
+import org.springframework.ai.chat.client.advisor.api.CallAroundAdvisorChain;
+import org.springframework.ai.chat.client.advisor.api.StreamAdvisor;
+import org.springframework.ai.chat.client.advisor.api.StreamAroundAdvisorChain;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.retry.NonTransientAiException;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ResilienceAdvisorTests {
+
+    @Mock
+    private ChatModel chatModel;
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    private final ChatResponse chatResponse = new ChatResponse(List.of(new Generation(new AssistantMessage("Bonds rallied."))));
+
+    private final ChatClientRequest request = ChatClientRequest.builder()
+            .prompt(new Prompt("How did bonds react to the rate cut?"))
+            .context(Map.of())
+            .build();
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void adviseCall_success_walksTheAdvisorsAfterIt() {
+        // Arrange
+        List<String> seen = new ArrayList<>();
+        when(chatModel.call(any(Prompt.class))).thenReturn(chatResponse);
+        ResilienceAdvisor advisor = ResilienceAdvisor.builder(executor).build();
+        CallAdvisor after = new CallAdvisor() {
+            @Override
+            @SuppressWarnings("deprecation")
+            public ChatClientResponse adviseCall(ChatClientRequest chatClientRequest, CallAroundAdvisorChain chain) {
+                seen.add(chatClientRequest.prompt().getContents());
+                return ((DefaultAroundAdvisorChain) chain).nextCall(chatClientRequest);
+            }
+
+            @Override
+            public String getName() {
+                return "after";
+            }
+
+            @Override
+            public int getOrder() {
+                return Ordered.LOWEST_PRECEDENCE - 1;
+            }
+        };
+
+        // Act
+        ChatClientResponse response = chain(advisor, after).nextCall(request);
+
+        // Assert
+        assertThat(response.chatResponse()).isSameAs(chatResponse);
+        assertThat(seen).containsExactly("How did bonds react to the rate cut?");
+    }
+
+    @Test
+    void adviseCall_slowerThanRequestDeadline_throwsGatewayTimeout() {
+        // Arrange
+        when(chatModel.call(any(Prompt.class))).thenAnswer(invocation -> {
+            Thread.sleep(1_000);
+            return chatResponse;
+        });
+        ResilienceAdvisor advisor = ResilienceAdvisor.builder(executor)
+                .deadline(Duration.ofSeconds(30))
+                .build();
+        ChatClientRequest withDeadline = request.mutate().context(ResilienceAdvisor.DEADLINE, Duration.ofMillis(100)).build();
+
+        // Act & Assert
+        assertThatThrownBy(() -> chain(advisor).nextCall(withDeadline))
+                .isInstanceOf(ResponseStatusException.class)
+                .extracting(e -> ((ResponseStatusException) e).getStatusCode())
+                .isEqualTo(HttpStatus.GATEWAY_TIMEOUT);
+    }
+
+    @Test
+    void adviseCall_pastDeadline_interruptsRunningAttempt() throws InterruptedException {
+        // Arrange
+        CountDownLatch interrupted = new CountDownLatch(1);
+        when(chatModel.call(any(Prompt.class))).thenAnswer(invocation -> {
+            try {
+                Thread.sleep(10_000);
+            }
+            catch (InterruptedException e) {
+                interrupted.countDown();
+                throw new IllegalStateException(e);
+            }
+            return chatResponse;
+        });
+        ResilienceAdvisor advisor = ResilienceAdvisor.builder(executor)
+                .deadline(Duration.ofMillis(100))
+                .build();
+
+        // Act
+        assertThatThrownBy(() -> chain(advisor).nextCall(request)).isInstanceOf(ResponseStatusException.class);
+
+        // Assert
+        assertThat(interrupted.await(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    void adviseCall_executorFull_rejectsWithServiceUnavailableWithoutCountingFailure() {
+        // Arrange
+        ThreadPoolExecutor singleThread = new ThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS, new SynchronousQueue<>());
+        CountDownLatch release = new CountDownLatch(1);
+        singleThread.execute(() -> {
+            try {
+                release.await();
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        ResilienceAdvisor advisor = ResilienceAdvisor.builder(singleThread)
+                .circuitBreaker(0.5, 1, Duration.ofMinutes(1))
+                .build();
+
+        // Act & Assert
+        try {
+            assertThatThrownBy(() -> chain(advisor).nextCall(request))
+                    .isInstanceOf(ResponseStatusException.class)
+                    .extracting(e -> ((ResponseStatusException) e).getStatusCode())
+                    .isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+            assertThat(advisor.circuitState()).isEqualTo(ResilienceAdvisor.CircuitBreaker.State.CLOSED);
+            verifyNoInteractions(chatModel);
+        }
+        finally {
+            release.countDown();
+            singleThread.shutdownNow();
+        }
+    }
+
+    @Test
+    void adviseCall_clientErrors_doNotOpenCircuit() {
+        // Arrange
+        when(chatModel.call(any(Prompt.class))).thenThrow(new NonTransientAiException("400 - Invalid schema"));
+        ResilienceAdvisor advisor = ResilienceAdvisor.builder(executor)
+                .circuitBreaker(0.5, 2, Duration.ofMinutes(1))
+                .build();
+
+        // Act
+        for (int i = 0; i < 4; i++) {
+            assertThatThrownBy(() -> chain(advisor).nextCall(request)).hasMessageContaining("Invalid schema");
+        }
+
+        // Assert
+        assertThat(advisor.circuitState()).isEqualTo(ResilienceAdvisor.CircuitBreaker.State.CLOSED);
+        assertThat(ResilienceAdvisor.isClientError(new NonTransientAiException("429 - Rate limit reached"))).isFalse();
+    }
+
+    @Test
+    void adviseCall_failureRateAboveThreshold_opensCircuitAndFailsFast() {
+        // Arrange
+        when(chatModel.call(any(Prompt.class))).thenThrow(new RuntimeException("OpenAI unavailable"));
+        ResilienceAdvisor advisor = ResilienceAdvisor.builder(executor)
+                .circuitBreaker(0.5, 4, Duration.ofMinutes(1))
+                .build();
+
+        // Act
+        for (int i = 0; i < 4; i++) {
+            assertThatThrownBy(() -> chain(advisor).nextCall(request)).hasMessageContaining("OpenAI unavailable");
+        }
+
+        // Assert
+        assertThat(advisor.circuitState()).isEqualTo(ResilienceAdvisor.CircuitBreaker.State.OPEN);
+        assertThatThrownBy(() -> chain(advisor).nextCall(request))
+                .isInstanceOf(ResponseStatusException.class)
+                .extracting(e -> ((ResponseStatusException) e).getStatusCode())
+                .isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        verify(chatModel, times(4)).call(any(Prompt.class));
+    }
+
+    @Test
+    void adviseCall_primarySlowerThanP95_hedgedAttemptWalksACopyOfTheChain() {
+        // Arrange
+        AtomicInteger calls = new AtomicInteger();
+        when(chatModel.call(any(Prompt.class))).thenAnswer(invocation -> {
+            // The 21st call is the slow primary, everything else answers quickly
+            if (calls.incrementAndGet() == 21) {
+                Thread.sleep(2_000);
+            }
+            return chatResponse;
+        });
+        ResilienceAdvisor advisor = ResilienceAdvisor.builder(executor)
+                .hedging(true, Duration.ofMillis(50))
+                .build();
+        for (int i = 0; i < 20; i++) {
+            chain(advisor).nextCall(request);
+        }
+
+        // Act
+        long start = System.nanoTime();
+        ChatClientResponse response = chain(advisor).nextCall(request);
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+
+        // Assert
+        assertThat(response.chatResponse()).isSameAs(chatResponse);
+        assertThat(elapsed).isLessThan(Duration.ofSeconds(1));
+        verify(chatModel, times(22)).call(any(Prompt.class));
+    }
+
+    @Test
+    void adviseCall_slowFailures_countTowardsTheHedgeDelay() {
+        // Arrange
+        AtomicInteger calls = new AtomicInteger();
+        when(chatModel.call(any(Prompt.class))).thenAnswer(invocation -> {
+            // 20 fast failures fill the latency window, then the 21st call is the slow primary
+            int call = calls.incrementAndGet();
+            if (call <= 20) {
+                throw new RuntimeException("OpenAI unavailable");
+            }
+            if (call == 21) {
+                Thread.sleep(2_000);
+            }
+            return chatResponse;
+        });
+        ResilienceAdvisor advisor = ResilienceAdvisor.builder(executor)
+                .hedging(true, Duration.ofMillis(50))
+                .circuitBreaker(1.0, 100, Duration.ofMinutes(1))
+                .build();
+        for (int i = 0; i < 20; i++) {
+            assertThatThrownBy(() -> chain(advisor).nextCall(request)).hasMessageContaining("OpenAI unavailable");
+        }
+
+        // Act
+        long start = System.nanoTime();
+        ChatClientResponse response = chain(advisor).nextCall(request);
+
+        // Assert
+        assertThat(response.chatResponse()).isSameAs(chatResponse);
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofSeconds(1));
+    }
+
+    @Test
+    void attempts_closed_startNoFurtherAttempt() {
+        // Arrange
+        ExecutorService tracked = mock(ExecutorService.class);
+        ResilienceAdvisor.Attempts<String> attempts = new ResilienceAdvisor.Attempts<>(tracked);
+
+        // Act
+        attempts.close();
+
+        // Assert
+        assertThat(attempts.start(() -> "late hedge")).isFalse();
+        verifyNoInteractions(tracked);
+    }
+
+    @Test
+    void circuitBreaker_releasedTrial_letsNextTrialThrough() {
+        // Arrange
+        ResilienceAdvisor.CircuitBreaker circuitBreaker = new ResilienceAdvisor.CircuitBreaker(0.5, 1, Duration.ZERO);
+        circuitBreaker.onFailure();
+        assertThat(circuitBreaker.tryAcquire()).isTrue();
+        assertThat(circuitBreaker.tryAcquire()).isFalse();
+
+        // Act
+        circuitBreaker.release();
+
+        // Assert
+        assertThat(circuitBreaker.state()).isEqualTo(ResilienceAdvisor.CircuitBreaker.State.HALF_OPEN);
+        assertThat(circuitBreaker.tryAcquire()).isTrue();
+    }
+
+    @Test
+    void adviseStream_openCircuit_failsFastWithServiceUnavailable() {
+        // Arrange
+        when(chatModel.call(any(Prompt.class))).thenThrow(new RuntimeException("OpenAI unavailable"));
+        ResilienceAdvisor advisor = ResilienceAdvisor.builder(executor)
+                .circuitBreaker(0.5, 1, Duration.ofMinutes(1))
+                .build();
+        assertThatThrownBy(() -> chain(advisor).nextCall(request)).hasMessageContaining("OpenAI unavailable");
+
+        // Act & Assert
+        assertThatThrownBy(() -> streamChain(advisor, Flux.empty()).nextStream(request).blockLast())
+                .isInstanceOf(ResponseStatusException.class)
+                .extracting(e -> ((ResponseStatusException) e).getStatusCode())
+                .isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        verify(chatModel, never()).stream(any(Prompt.class));
+    }
+
+    @Test
+    void adviseStream_slowerThanDeadline_failsWithGatewayTimeoutAndCountsFailure() {
+        // Arrange
+        ResilienceAdvisor advisor = ResilienceAdvisor.builder(executor)
+                .circuitBreaker(0.5, 1, Duration.ofMinutes(1))
+                .build();
+        ChatClientRequest withDeadline = request.mutate().context(ResilienceAdvisor.DEADLINE, Duration.ofMillis(200)).build();
+        // Each token arrives well within the deadline, the whole stream does not
+        Flux<ChatResponse> tokens = Flux.interval(Duration.ofMillis(50)).map(i -> chatResponse);
+
+        // Act & Assert
+        assertThatThrownBy(() -> streamChain(advisor, tokens).nextStream(withDeadline).blockLast())
+                .isInstanceOf(ResponseStatusException.class)
+                .extracting(e -> ((ResponseStatusException) e).getStatusCode())
+                .isEqualTo(HttpStatus.GATEWAY_TIMEOUT);
+        assertThat(advisor.circuitState()).isEqualTo(ResilienceAdvisor.CircuitBreaker.State.OPEN);
+    }
+
+    @Test
+    void adviseStream_completes_streamsEveryResponse() {
+        // Arrange
+        ResilienceAdvisor advisor = ResilienceAdvisor.builder(executor).build();
+
+        // Act
+        List<ChatClientResponse> responses = streamChain(advisor, Flux.just(chatResponse, chatResponse))
+                .nextStream(request)
+                .collectList()
+                .block();
+
+        // Assert
+        assertThat(responses).extracting(ChatClientResponse::chatResponse).containsExactly(chatResponse, chatResponse);
+        assertThat(advisor.circuitState()).isEqualTo(ResilienceAdvisor.CircuitBreaker.State.CLOSED);
+    }
+
+    private DefaultAroundAdvisorChain chain(Advisor... advisors) {
+        List<Advisor> all = new ArrayList<>(List.of(advisors));
+        all.add(modelCall());
+        return DefaultAroundAdvisorChain.builder(ObservationRegistry.NOOP).pushAll(all).build();
+    }
+
+    private DefaultAroundAdvisorChain streamChain(ResilienceAdvisor advisor, Flux<ChatResponse> tokens) {
+        return DefaultAroundAdvisorChain.builder(ObservationRegistry.NOOP).pushAll(List.of(advisor, modelStream(tokens))).build();
+    }
+
+    // Ends the chain the way the chat client's own last advisor does
+    private CallAdvisor modelCall() {
+        return new CallAdvisor() {
+            @Override
+            @SuppressWarnings("deprecation")
+            public ChatClientResponse adviseCall(ChatClientRequest chatClientRequest, CallAroundAdvisorChain chain) {
+                return new ChatClientResponse(chatModel.call(chatClientRequest.prompt()), chatClientRequest.context());
+            }
+
+            @Override
+            public String getName() {
+                return "modelCall";
+            }
+
+            @Override
+            public int getOrder() {
+                return Ordered.LOWEST_PRECEDENCE;
+            }
+        };
+    }
+
+    private static StreamAdvisor modelStream(Flux<ChatResponse> tokens) {
+        return new StreamAdvisor() {
+            @Override
+            @SuppressWarnings("deprecation")
+            public Flux<ChatClientResponse> adviseStream(ChatClientRequest chatClientRequest, StreamAroundAdvisorChain chain) {
+                return tokens.map(token -> new ChatClientResponse(token, chatClientRequest.context()));
+            }
+
+            @Override
+            public String getName() {
+                return "modelStream";
+            }
+
+            @Override
+            public int getOrder() {
+                return Ordered.LOWEST_PRECEDENCE;
+            }
+        };
+    }
+}
@@ -0,0 +1,125 @@
+package com.sourabh.Spring_RAG;
+
+import com.knuddels.jtokkit.Encodings;
+import com.knuddels.jtokkit.api.Encoding;
+import com.knuddels.jtokkit.api.EncodingType;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.document.Document;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SentenceTokenTextSplitterTests {
+
+    private final Encoding encoding = Encodings.newLazyEncodingRegistry().getEncoding(EncodingType.CL100K_BASE);
+
+    @Test
+    void apply_longText_keepsEveryChunkWithinTheTokenLimitAndEndsOnSentences() {
+        // Arrange
+        SentenceTokenTextSplitter splitter = new SentenceTokenTextSplitter(encoding, 50, 10, 20);
+        String text = IntStream.range(0, 40)
+                .mapToObj(i -> "Sentence number " + i + " talks about equities and bonds in the market.")
+                .reduce((a, b) -> a + " " + b)
+                .orElseThrow();
+
+        // Act
+        List<Document> chunks = splitter.apply(List.of(new Document(text)));
+
+        // Assert
+        assertThat(chunks).hasSizeGreaterThan(1);
+        assertThat(chunks).allSatisfy(chunk -> {
+            assertThat(encoding.countTokensOrdinary(chunk.getText())).isLessThanOrEqualTo(50);
+            assertThat(chunk.getText()).endsWith(".");
+        });
+    }
+
+    @Test
+    void apply_consecutiveChunks_shareOverlappingSentences() {
+        // Arrange
+        SentenceTokenTextSplitter splitter = new SentenceTokenTextSplitter(encoding, 40, 15, 20);
+        String text = IntStream.range(0, 10)
+                .mapToObj(i -> "Report line " + i + " covers rates.")
+                .reduce((a, b) -> a + " " + b)
+                .orElseThrow();
+
+        // Act
+        List<Document> chunks = splitter.apply(List.of(new Document(text)));
+
+        // Assert
+        String first = chunks.get(0).getText();
+        String second = chunks.get(1).getText();
+        String lastSentenceOfFirst = first.substring(first.lastIndexOf("Report line"));
+        // The second chunk opens with whole sentences from the end of the first, within the overlap
+        String overlap = second.substring(0, second.indexOf(lastSentenceOfFirst) + lastSentenceOfFirst.length());
+        assertThat(second).startsWith("Report line");
+        assertThat(first).endsWith(overlap);
+        assertThat(encoding.countTokensOrdinary(overlap)).isLessThanOrEqualTo(15);
+    }
+
+    @Test
+    void apply_paragraphBreak_startsANewChunkWithoutOverlap() {
+        // Arrange
+        SentenceTokenTextSplitter splitter = new SentenceTokenTextSplitter(encoding, 200, 20, 5);
+        String text = "Equities rallied after the rate cut. Small caps led the move.\n\nBonds sold off. Yields rose sharply.";
+
+        // Act
+        List<Document> chunks = splitter.apply(List.of(new Document(text)));
+
+        // Assert
+        assertThat(chunks).extracting(Document::getText).containsExactly(
+                "Equities rallied after the rate cut. Small caps led the move.",
+                "Bonds sold off. Yields rose sharply.");
+    }
+
+    @Test
+    void apply_sentenceLongerThanAChunk_isCutAtWhitespace() {
+        // Arrange
+        SentenceTokenTextSplitter splitter = new SentenceTokenTextSplitter(encoding, 20, 0, 5);
+        String text = "word ".repeat(100).strip() + ".";
+
+        // Act
+        List<Document> chunks = splitter.apply(List.of(new Document(text)));
+
+        // Assert
+        assertThat(chunks).hasSizeGreaterThan(4);
+        assertThat(chunks).allSatisfy(chunk -> {
+            assertThat(encoding.countTokensOrdinary(chunk.getText())).isLessThanOrEqualTo(20);
+            assertThat(chunk.getText()).startsWith("word");
+        });
+    }
+
+    @Test
+    void apply_multiByteText_cutsOnTokenBoundariesWithoutLosingText() {
+        // Arrange
+        SentenceTokenTextSplitter splitter = new SentenceTokenTextSplitter(encoding, 20, 0, 5);
+        String text = "naïve café 😀 über ".repeat(60).strip() + ". That is all.";
+
+        // Act
+        List<Document> chunks = splitter.apply(List.of(new Document(text)));
+
+        // Assert
+        assertThat(chunks).allSatisfy(chunk ->
+                assertThat(encoding.countTokensOrdinary(chunk.getText())).isLessThanOrEqualTo(20));
+        assertThat(chunks.stream().map(Document::getText).reduce("", String::concat).replace(" ", ""))
+                .isEqualTo(text.replace(" ", ""));
+    }
+
+    @Test
+    void apply_severalDocuments_keepsDocumentOrderAndMetadata() {
+        // Arrange
+        SentenceTokenTextSplitter splitter = new SentenceTokenTextSplitter(encoding, 200, 20, 5);
+        List<Document> documents = IntStream.range(0, 20)
+                .mapToObj(i -> new Document("Page " + i + " describes the market.", Map.of("page", i)))
+                .toList();
+
+        // Act
+        List<Document> chunks = splitter.apply(documents);
+
+        // Assert
+        assertThat(chunks).extracting(chunk -> chunk.getMetadata().get("page"))
+                .containsExactlyElementsOf(IntStream.range(0, 20).boxed().toList());
+    }
+}
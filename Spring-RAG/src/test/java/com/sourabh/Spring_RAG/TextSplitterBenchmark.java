@@ -0,0 +1,69 @@
+package com.sourabh.Spring_RAG;
+
+import com.knuddels.jtokkit.Encodings;
+import com.knuddels.jtokkit.api.EncodingType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.reader.pdf.PagePdfDocumentReader;
+import org.springframework.ai.transformer.splitter.TextSplitter;
+import org.springframework.ai.transformer.splitter.TokenTextSplitter;
+import org.springframework.core.io.ClassPathResource;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link SentenceTokenTextSplitter} with Spring AI's {@link TokenTextSplitter} on the
+ * bundled market report, one document per page.
+ * <p>
+ * Not run as part of the test suite. After {@code mvn test-compile}, run {@link #main} from the
+ * IDE, or {@code org.openjdk.jmh.Main TextSplitterBenchmark -prof gc} on the test classpath to
+ * also compare allocation rates.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TextSplitterBenchmark {
+
+    private List<Document> pages;
+    private TextSplitter tokenTextSplitter;
+    private TextSplitter sentenceTokenTextSplitter;
+
+    @Setup
+    public void setUp() {
+        pages = new PagePdfDocumentReader(new ClassPathResource("docs/article_thebeatoct2024.pdf")).get();
+        tokenTextSplitter = new TokenTextSplitter();
+        sentenceTokenTextSplitter = new SentenceTokenTextSplitter(
+                Encodings.newLazyEncodingRegistry().getEncoding(EncodingType.CL100K_BASE),
+                800, 80, 200);
+    }
+
+    @Benchmark
+    public List<Document> tokenTextSplitter() {
+        return tokenTextSplitter.apply(pages);
+    }
+
+    @Benchmark
+    public List<Document> sentenceTokenTextSplitter() {
+        return sentenceTokenTextSplitter.apply(pages);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(TextSplitterBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -1,9 +1,12 @@
 package com.sourabh;
 
 import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.time.Duration;
+import java.util.Collections;
 import java.util.Map;
 
 @RestController
@@ -15,9 +18,15 @@ public class JokeController {
 
     private final ChatClient chatClient;
 
+    @Value("${app.resilience.joke.deadline:10s}")
+    private Duration jokeDeadline;
+
     @GetMapping("joke")
     Map<String, String> joke(){
-        var reply = chatClient.prompt().user("Tell me a joke").call().content();
-        return Map.of("joke", reply);
+        var reply = chatClient.prompt()
+                .advisors(advisorSpec -> advisorSpec.param(ResilienceAdvisor.DEADLINE, jokeDeadline))
+                .user("Tell me a joke").call().content();
+        // Map.of rejects the null content of an empty answer
+        return Collections.singletonMap("joke", reply);
     }
 }
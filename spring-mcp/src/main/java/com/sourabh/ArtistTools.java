@@ -0,0 +1,36 @@
+package com.sourabh;
+
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.converter.ListOutputConverter;
+import org.springframework.ai.tool.annotation.Tool;
+import org.springframework.ai.tool.annotation.ToolParam;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.core.convert.support.DefaultConversionService;
+import org.springframework.stereotype.Component;
+import org.springframework.util.function.SingletonSupplier;
+
+import java.util.List;
+
+@Component
+public class ArtistTools {
+
+    private final SingletonSupplier<ChatClient> chatClient;
+
+    // The chat model depends on the tool callbacks built from this bean, so the client is built on first use
+    public ArtistTools(ObjectProvider<ChatClient.Builder> chatClientBuilder) {
+        this.chatClient = SingletonSupplier.of(() -> chatClientBuilder.getObject().build());
+    }
+
+    @Tool(name = "top_songs", description = "Get the list of top 10 songs for an artist")
+    public List<String> topSongs(@ToolParam(description = "Name of the artist") String artist) {
+        ListOutputConverter listOutputConverter = new ListOutputConverter(new DefaultConversionService());
+
+        return chatClient.obtain().prompt()
+                .user(promptUserSpec -> promptUserSpec
+                        .text("Please give me list of top 10 songs for the artist {artist}. If you dont know the answer, just say I dont know {format}")
+                        .param("artist", artist)
+                        .param("format", listOutputConverter.getFormat()))
+                .call()
+                .entity(listOutputConverter);
+    }
+}
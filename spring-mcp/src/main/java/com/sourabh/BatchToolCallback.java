@@ -0,0 +1,144 @@
+package com.sourabh;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.definition.ToolDefinition;
+import org.springframework.ai.tool.execution.ToolExecutionException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Meta tool that lets a client send several tool calls in one request. The calls are run
+ * concurrently on the given executor and the results are returned in request order, so an
+ * agent pays for one round-trip and the slowest call instead of the sum of all calls.
+ * Calls still running when the batch timeout expires are interrupted and reported as errors.
+ */
+public class BatchToolCallback implements ToolCallback {
+
+    static final String NAME = "batch_tool_call";
+
+    private static final String INPUT_SCHEMA = """
+            {
+              "type": "object",
+              "properties": {
+                "calls": {
+                  "type": "array",
+                  "items": {
+                    "type": "object",
+                    "properties": {
+                      "name": { "type": "string", "description": "Name of the tool to call" },
+                      "arguments": { "type": "object", "description": "Arguments for the tool" }
+                    },
+                    "required": ["name"]
+                  }
+                }
+              },
+              "required": ["calls"]
+            }
+            """;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ToolDefinition toolDefinition;
+    private final Map<String, ToolCallback> tools;
+    private final ExecutorService executor;
+    private final Duration timeout;
+
+    public BatchToolCallback(List<ToolCallback> tools, ExecutorService executor, Duration timeout) {
+        this.tools = tools.stream().collect(Collectors.toMap(tool -> tool.getToolDefinition().name(), Function.identity()));
+        this.executor = executor;
+        this.timeout = timeout;
+        this.toolDefinition = ToolDefinition.builder()
+                .name(NAME)
+                .description("Call several tools at once. The calls run in parallel and the results are returned in the same order. Available tools: "
+                        + String.join(", ", this.tools.keySet()))
+                .inputSchema(INPUT_SCHEMA)
+                .build();
+    }
+
+    @Override
+    public ToolDefinition getToolDefinition() {
+        return toolDefinition;
+    }
+
+    @Override
+    public String call(String toolInput) {
+        JsonNode calls = readCalls(toolInput);
+
+        List<String> names = new ArrayList<>(calls.size());
+        List<Future<String>> futures = new ArrayList<>(calls.size());
+        for (JsonNode call : calls) {
+            String name = call.path("name").asText();
+            names.add(name);
+            futures.add(submit(name, call.path("arguments")));
+        }
+
+        long deadline = System.nanoTime() + timeout.toNanos();
+        ArrayNode results = objectMapper.createArrayNode();
+        for (int i = 0; i < futures.size(); i++) {
+            results.add(result(names.get(i), futures.get(i), deadline));
+        }
+        return results.toString();
+    }
+
+    private JsonNode readCalls(String toolInput) {
+        try {
+            JsonNode calls = objectMapper.readTree(toolInput).path("calls");
+            if (!calls.isArray()) {
+                throw new IllegalArgumentException("'calls' must be an array");
+            }
+            return calls;
+        }
+        catch (JsonProcessingException | IllegalArgumentException e) {
+            throw new ToolExecutionException(toolDefinition, e);
+        }
+    }
+
+    private Future<String> submit(String name, JsonNode arguments) {
+        ToolCallback tool = tools.get(name);
+        if (tool == null) {
+            return null;
+        }
+        String input = arguments.isMissingNode() || arguments.isNull() ? "{}" : arguments.toString();
+        return executor.submit(() -> tool.call(input));
+    }
+
+    private ObjectNode result(String name, Future<String> future, long deadline) {
+        ObjectNode result = objectMapper.createObjectNode().put("name", name);
+        if (future == null) {
+            return result.put("error", "Unknown tool: " + name);
+        }
+        try {
+            return result.put("result", future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS));
+        }
+        catch (ExecutionException e) {
+            return result.put("error", describe(e.getCause()));
+        }
+        catch (TimeoutException e) {
+            future.cancel(true);
+            return result.put("error", "Timed out after " + timeout);
+        }
+        catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            return result.put("error", "Interrupted");
+        }
+    }
+
+    private static String describe(Throwable error) {
+        return error.getMessage() != null ? error.getMessage() : error.getClass().getSimpleName();
+    }
+}
@@ -0,0 +1,215 @@
+package com.sourabh;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.ai.chat.model.ToolContext;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.definition.ToolDefinition;
+import org.springframework.ai.tool.metadata.ToolMetadata;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Wraps a {@link ToolCallback} with a size-bounded, TTL-based result cache and records
+ * a {@code mcp.tool.calls} timer per tool, tagged with the outcome of each call
+ * ({@code hit}, {@code miss}, {@code coalesced}, {@code uncached} or {@code error}).
+ * <p>
+ * Inputs are keyed by their canonical JSON, so the same arguments in a different order or with
+ * different whitespace share an entry. Concurrent misses for the same key wait for the one call
+ * in flight instead of calling the tool again. That wait is interruptible, so a caller that gives
+ * up, such as a timed out {@link BatchToolCallback}, frees its thread. Calls that carry a
+ * {@link ToolContext} bypass the cache because their result may depend on it.
+ */
+public class CachingToolCallback implements ToolCallback {
+
+    private static final ObjectMapper canonicalMapper = JsonMapper.builder()
+            .enable(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS)
+            .enable(DeserializationFeature.FAIL_ON_TRAILING_TOKENS)
+            .build();
+
+    private final ToolCallback delegate;
+    private final ToolProperties.Cache cacheSpec;
+    private final Clock clock;
+    private final Map<String, CachedResult> cache;
+    private final Map<String, CompletableFuture<String>> inFlight = new ConcurrentHashMap<>();
+
+    private final Timer hitTimer;
+    private final Timer missTimer;
+    private final Timer coalescedTimer;
+    private final Timer uncachedTimer;
+    private final Timer errorTimer;
+
+    public CachingToolCallback(ToolCallback delegate, ToolProperties.Cache cacheSpec, MeterRegistry meterRegistry) {
+        this(delegate, cacheSpec, meterRegistry, Clock.systemUTC());
+    }
+
+    CachingToolCallback(ToolCallback delegate, ToolProperties.Cache cacheSpec, MeterRegistry meterRegistry, Clock clock) {
+        this.delegate = delegate;
+        this.cacheSpec = cacheSpec;
+        this.clock = clock;
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedResult> eldest) {
+                return size() > cacheSpec.maxSize();
+            }
+        };
+
+        String toolName = delegate.getToolDefinition().name();
+        this.hitTimer = timer(meterRegistry, toolName, "hit");
+        this.missTimer = timer(meterRegistry, toolName, "miss");
+        this.coalescedTimer = timer(meterRegistry, toolName, "coalesced");
+        this.uncachedTimer = timer(meterRegistry, toolName, "uncached");
+        this.errorTimer = timer(meterRegistry, toolName, "error");
+        Gauge.builder("mcp.tool.cache.size", this, CachingToolCallback::cacheSize)
+                .tag("tool", toolName)
+                .register(meterRegistry);
+    }
+
+    private static Timer timer(MeterRegistry meterRegistry, String toolName, String outcome) {
+        return Timer.builder("mcp.tool.calls")
+                .tag("tool", toolName)
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public ToolDefinition getToolDefinition() {
+        return delegate.getToolDefinition();
+    }
+
+    @Override
+    public ToolMetadata getToolMetadata() {
+        return delegate.getToolMetadata();
+    }
+
+    @Override
+    public String call(String toolInput) {
+        return call(toolInput, null);
+    }
+
+    @Override
+    public String call(String toolInput, ToolContext toolContext) {
+        long start = System.nanoTime();
+        boolean cacheable = cacheSpec.enabled() && (toolContext == null || toolContext.getContext().isEmpty());
+
+        if (!cacheable) {
+            String result = callDelegate(toolInput, toolContext, start);
+            uncachedTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return result;
+        }
+
+        String key = canonicalKey(toolInput);
+        String cached = lookup(key);
+        if (cached != null) {
+            hitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return cached;
+        }
+
+        CompletableFuture<String> call = new CompletableFuture<>();
+        CompletableFuture<String> running = inFlight.putIfAbsent(key, call);
+        if (running != null) {
+            String result = await(running, start);
+            coalescedTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return result;
+        }
+
+        try {
+            String result = callDelegate(toolInput, toolContext, start);
+            store(key, result);
+            call.complete(result);
+            missTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return result;
+        }
+        catch (RuntimeException | Error e) {
+            call.completeExceptionally(e);
+            throw e;
+        }
+        finally {
+            inFlight.remove(key, call);
+        }
+    }
+
+    private String callDelegate(String toolInput, ToolContext toolContext, long start) {
+        try {
+            return toolContext == null ? delegate.call(toolInput) : delegate.call(toolInput, toolContext);
+        }
+        catch (RuntimeException e) {
+            errorTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            throw e;
+        }
+    }
+
+    private String await(CompletableFuture<String> running, long start) {
+        awaitingInFlight();
+        try {
+            return running.get();
+        }
+        catch (ExecutionException e) {
+            errorTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            throw e.getCause() instanceof RuntimeException cause ? cause : new CompletionException(e.getCause());
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            errorTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            throw new CancellationException("Interrupted while waiting for the call in flight");
+        }
+    }
+
+    /**
+     * Called when a miss is about to wait for the call in flight. Tests override it to know that
+     * the caller has coalesced.
+     */
+    void awaitingInFlight() {
+    }
+
+    /**
+     * Input JSON with object keys sorted and insignificant whitespace removed. Input that is not
+     * JSON is used as it is.
+     */
+    static String canonicalKey(String toolInput) {
+        try {
+            return canonicalMapper.writeValueAsString(canonicalMapper.readValue(toolInput, Object.class));
+        }
+        catch (JsonProcessingException e) {
+            return toolInput;
+        }
+    }
+
+    private synchronized String lookup(String key) {
+        CachedResult cached = cache.get(key);
+        if (cached == null) {
+            return null;
+        }
+        if (!cached.expiresAt().isAfter(clock.instant())) {
+            cache.remove(key);
+            return null;
+        }
+        return cached.value();
+    }
+
+    private synchronized void store(String key, String result) {
+        cache.put(key, new CachedResult(result, clock.instant().plus(cacheSpec.ttl())));
+    }
+
+    synchronized int cacheSize() {
+        return cache.size();
+    }
+
+    private record CachedResult(String value, Instant expiresAt) {
+    }
+}
@@ -0,0 +1,40 @@
+package com.sourabh;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.ToolCallbackProvider;
+import org.springframework.ai.tool.ToolCallbacks;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+@Configuration
+@EnableConfigurationProperties(ToolProperties.class)
+public class McpToolConfig {
+
+    @Bean(destroyMethod = "shutdown")
+    ExecutorService toolExecutor(ToolProperties toolProperties) {
+        return Executors.newFixedThreadPool(toolProperties.batch().concurrency());
+    }
+
+    @Bean
+    ToolCallbackProvider toolCallbackProvider(ArtistTools artistTools, ToolProperties toolProperties,
+                                              MeterRegistry meterRegistry, ExecutorService toolExecutor) {
+        List<ToolCallback> tools = Arrays.stream(ToolCallbacks.from(artistTools))
+                .<ToolCallback>map(tool -> new CachingToolCallback(tool,
+                        toolProperties.cacheFor(tool.getToolDefinition().name()), meterRegistry))
+                .toList();
+
+        List<ToolCallback> allTools = new ArrayList<>(tools);
+        allTools.add(new CachingToolCallback(
+                new BatchToolCallback(tools, toolExecutor, toolProperties.batch().timeout()),
+                toolProperties.cacheFor(BatchToolCallback.NAME), meterRegistry));
+        return ToolCallbackProvider.from(allTools);
+    }
+}
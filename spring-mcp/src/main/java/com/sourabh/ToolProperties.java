@@ -0,0 +1,36 @@
+package com.sourabh;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Per-tool cache settings and batch execution settings for the MCP server.
+ * Only tools listed under {@code mcp.tools.cache} are cached, so a tool has to be
+ * opted in explicitly once it is known to be idempotent.
+ */
+@ConfigurationProperties(prefix = "mcp.tools")
+public record ToolProperties(Map<String, Cache> cache, @DefaultValue Batch batch) {
+
+    public ToolProperties {
+        cache = cache == null ? Map.of() : Map.copyOf(cache);
+    }
+
+    public Cache cacheFor(String toolName) {
+        return cache.getOrDefault(toolName, Cache.DISABLED);
+    }
+
+    public record Cache(@DefaultValue("0s") Duration ttl, @DefaultValue("256") int maxSize) {
+
+        static final Cache DISABLED = new Cache(Duration.ZERO, 0);
+
+        public boolean enabled() {
+            return !ttl.isZero() && !ttl.isNegative() && maxSize > 0;
+        }
+    }
+
+    public record Batch(@DefaultValue("8") int concurrency, @DefaultValue("60s") Duration timeout) {
+    }
+}
@@ -0,0 +1,148 @@
+package com.sourabh;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.definition.ToolDefinition;
+import org.springframework.ai.tool.execution.ToolExecutionException;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BatchToolCallbackTests {
+
+    @Mock
+    private ToolCallback delegate;
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+    @BeforeEach
+    void setUp() {
+        when(delegate.getToolDefinition()).thenReturn(ToolDefinition.builder()
+                .name("top_songs").description("Top songs").inputSchema("{}").build());
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void call_runsCallsConcurrentlyAndKeepsOrder() {
+        // Arrange
+        // Every call waits for the other two, so the batch only completes when they run concurrently
+        CountDownLatch allStarted = new CountDownLatch(3);
+        when(delegate.call(any())).thenAnswer(invocation -> {
+            allStarted.countDown();
+            if (!allStarted.await(5, TimeUnit.SECONDS)) {
+                throw new IllegalStateException("Calls did not run concurrently");
+            }
+            return "\"" + invocation.getArgument(0, String.class).length() + "\"";
+        });
+        BatchToolCallback batch = new BatchToolCallback(List.of(delegate), executor, Duration.ofSeconds(5));
+        String input = """
+                {"calls": [
+                  {"name": "top_songs", "arguments": {"artist": "A"}},
+                  {"name": "top_songs", "arguments": {"artist": "BB"}},
+                  {"name": "unknown_tool"},
+                  {"name": "top_songs", "arguments": {"artist": "CCC"}}
+                ]}
+                """;
+
+        // Act
+        String result = batch.call(input);
+
+        // Assert
+        assertThat(result).isEqualTo("[{\"name\":\"top_songs\",\"result\":\"\\\"14\\\"\"},"
+                + "{\"name\":\"top_songs\",\"result\":\"\\\"15\\\"\"},"
+                + "{\"name\":\"unknown_tool\",\"error\":\"Unknown tool: unknown_tool\"},"
+                + "{\"name\":\"top_songs\",\"result\":\"\\\"16\\\"\"}]");
+    }
+
+    @Test
+    void call_pastTimeout_interruptsRunningCall() throws InterruptedException {
+        // Arrange
+        CountDownLatch interrupted = new CountDownLatch(1);
+        when(delegate.call(any())).thenAnswer(invocation -> {
+            try {
+                Thread.sleep(10_000);
+            }
+            catch (InterruptedException e) {
+                interrupted.countDown();
+                throw e;
+            }
+            return "\"late\"";
+        });
+        BatchToolCallback batch = new BatchToolCallback(List.of(delegate), executor, Duration.ofMillis(100));
+
+        // Act
+        String result = batch.call("{\"calls\": [{\"name\": \"top_songs\"}]}");
+
+        // Assert
+        assertThat(result).isEqualTo("[{\"name\":\"top_songs\",\"error\":\"Timed out after PT0.1S\"}]");
+        assertThat(interrupted.await(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    void call_pastTimeout_releasesThreadWaitingOnCallInFlight() throws Exception {
+        // Arrange
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(delegate.call("{}")).thenAnswer(invocation -> {
+            entered.countDown();
+            release.await(10, TimeUnit.SECONDS);
+            return "\"late\"";
+        });
+        CachingToolCallback cached = new CachingToolCallback(delegate, new ToolProperties.Cache(Duration.ofMinutes(5), 10),
+                new SimpleMeterRegistry());
+        ExecutorService single = Executors.newSingleThreadExecutor();
+        // Another client owns the call in flight, so the batched call coalesces onto it
+        CompletableFuture<String> owner = CompletableFuture.supplyAsync(() -> cached.call("{}"));
+        assertThat(entered.await(5, TimeUnit.SECONDS)).isTrue();
+        BatchToolCallback batch = new BatchToolCallback(List.of(cached), single, Duration.ofMillis(100));
+
+        try {
+            // Act
+            String result = batch.call("{\"calls\": [{\"name\": \"top_songs\"}]}");
+
+            // Assert
+            assertThat(result).isEqualTo("[{\"name\":\"top_songs\",\"error\":\"Timed out after PT0.1S\"}]");
+            // The only pool thread is free again while the call in flight is still running
+            assertThat(single.submit(() -> "free").get(5, TimeUnit.SECONDS)).isEqualTo("free");
+            assertThat(owner).isNotDone();
+        }
+        finally {
+            release.countDown();
+            single.shutdownNow();
+        }
+        assertThat(owner.get(5, TimeUnit.SECONDS)).isEqualTo("\"late\"");
+        verify(delegate, times(1)).call("{}");
+    }
+
+    @Test
+    void call_inputWithoutCallsArray_throwsToolExecutionException() {
+        // Arrange
+        BatchToolCallback batch = new BatchToolCallback(List.of(delegate), executor, Duration.ofSeconds(5));
+
+        // Act & Assert
+        assertThatThrownBy(() -> batch.call("{\"calls\": \"top_songs\"}"))
+                .isInstanceOf(ToolExecutionException.class);
+        verify(delegate, never()).call(any());
+    }
+}
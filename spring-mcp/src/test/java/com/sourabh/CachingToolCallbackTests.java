@@ -0,0 +1,219 @@
+package com.sourabh;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.ai.chat.model.ToolContext;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.definition.ToolDefinition;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CachingToolCallbackTests {
+
+    @Mock
+    private ToolCallback delegate;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final MutableClock clock = new MutableClock();
+
+    @BeforeEach
+    void setUp() {
+        when(delegate.getToolDefinition()).thenReturn(ToolDefinition.builder()
+                .name("top_songs").description("Top songs").inputSchema("{}").build());
+    }
+
+    @Test
+    void call_sameInputWithinTtl_isServedFromCache() {
+        // Arrange
+        when(delegate.call("{\"artist\":\"Sonu Nigam\"}")).thenReturn("[\"Kal Ho Naa Ho\"]");
+        CachingToolCallback tool = cachingTool(new ToolProperties.Cache(Duration.ofMinutes(5), 10));
+
+        // Act
+        String first = tool.call("{\"artist\":\"Sonu Nigam\"}");
+        String second = tool.call("{\"artist\":\"Sonu Nigam\"}");
+
+        // Assert
+        assertThat(first).isEqualTo(second).isEqualTo("[\"Kal Ho Naa Ho\"]");
+        verify(delegate, times(1)).call("{\"artist\":\"Sonu Nigam\"}");
+        assertThat(meterRegistry.get("mcp.tool.calls").tag("outcome", "hit").timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("mcp.tool.calls").tag("outcome", "miss").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    void call_sameArgumentsInDifferentOrder_shareCacheEntry() {
+        // Arrange
+        when(delegate.call("{\"a\":1, \"b\":2}")).thenReturn("result");
+        CachingToolCallback tool = cachingTool(new ToolProperties.Cache(Duration.ofMinutes(5), 10));
+
+        // Act
+        String first = tool.call("{\"a\":1, \"b\":2}");
+        String second = tool.call("{\"b\":2,\"a\":1}");
+
+        // Assert
+        assertThat(second).isEqualTo(first);
+        verify(delegate, never()).call("{\"b\":2,\"a\":1}");
+        assertThat(CachingToolCallback.canonicalKey("{ \"b\": {\"y\": 1, \"x\": 2}, \"a\": [2, 1] }"))
+                .isEqualTo("{\"a\":[2,1],\"b\":{\"x\":2,\"y\":1}}");
+    }
+
+    @Test
+    void call_concurrentMissesForSameInput_callDelegateOnce() throws Exception {
+        // Arrange
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch coalesced = new CountDownLatch(1);
+        when(delegate.call("{}")).thenAnswer(invocation -> {
+            entered.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return "result";
+        });
+        CachingToolCallback tool = new CachingToolCallback(delegate, new ToolProperties.Cache(Duration.ofMinutes(5), 10),
+                meterRegistry, clock) {
+            @Override
+            void awaitingInFlight() {
+                coalesced.countDown();
+            }
+        };
+        CompletableFuture<String> first = CompletableFuture.supplyAsync(() -> tool.call("{}"));
+        assertThat(entered.await(5, TimeUnit.SECONDS)).isTrue();
+
+        // Act
+        CompletableFuture<String> second = CompletableFuture.supplyAsync(() -> tool.call("{}"));
+        // The second caller waits for the call in flight instead of calling the delegate
+        assertThat(coalesced.await(5, TimeUnit.SECONDS)).isTrue();
+        release.countDown();
+
+        // Assert
+        assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo("result");
+        assertThat(second.get(5, TimeUnit.SECONDS)).isEqualTo("result");
+        verify(delegate, times(1)).call("{}");
+        assertThat(meterRegistry.get("mcp.tool.calls").tag("outcome", "coalesced").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    void call_afterTtlExpires_callsDelegateAgain() {
+        // Arrange
+        when(delegate.call("{}")).thenReturn("first", "second");
+        CachingToolCallback tool = cachingTool(new ToolProperties.Cache(Duration.ofMinutes(5), 10));
+
+        // Act
+        String first = tool.call("{}");
+        clock.advance(Duration.ofMinutes(5));
+        String second = tool.call("{}");
+
+        // Assert
+        assertThat(first).isEqualTo("first");
+        assertThat(second).isEqualTo("second");
+        verify(delegate, times(2)).call("{}");
+    }
+
+    @Test
+    void call_moreEntriesThanMaxSize_evictsLeastRecentlyUsed() {
+        // Arrange
+        when(delegate.call(any())).thenAnswer(invocation -> "result-" + invocation.getArgument(0));
+        CachingToolCallback tool = cachingTool(new ToolProperties.Cache(Duration.ofMinutes(5), 2));
+
+        // Act
+        tool.call("a");
+        tool.call("b");
+        tool.call("a");
+        tool.call("c");
+        tool.call("a");
+        tool.call("b");
+
+        // Assert
+        assertThat(tool.cacheSize()).isEqualTo(2);
+        verify(delegate, times(1)).call("a");
+        verify(delegate, times(2)).call("b");
+        verify(delegate, times(1)).call("c");
+    }
+
+    @Test
+    void call_cacheDisabled_alwaysCallsDelegate() {
+        // Arrange
+        when(delegate.call("{}")).thenReturn("result");
+        CachingToolCallback tool = cachingTool(new ToolProperties.Cache(Duration.ZERO, 10));
+
+        // Act
+        tool.call("{}");
+        tool.call("{}");
+
+        // Assert
+        verify(delegate, times(2)).call("{}");
+        assertThat(meterRegistry.get("mcp.tool.calls").tag("outcome", "uncached").timer().count()).isEqualTo(2);
+    }
+
+    @Test
+    void call_withToolContext_bypassesCache() {
+        // Arrange
+        ToolContext toolContext = new ToolContext(Map.of("user", "sourabh"));
+        when(delegate.call("{}", toolContext)).thenReturn("result");
+        CachingToolCallback tool = cachingTool(new ToolProperties.Cache(Duration.ofMinutes(5), 10));
+
+        // Act
+        tool.call("{}", toolContext);
+        tool.call("{}", toolContext);
+
+        // Assert
+        verify(delegate, times(2)).call("{}", toolContext);
+        assertThat(tool.cacheSize()).isZero();
+    }
+
+    @Test
+    void call_delegateThrows_errorIsNotCachedAndIsCounted() {
+        // Arrange
+        when(delegate.call("{}")).thenThrow(new RuntimeException("OpenAI unavailable")).thenReturn("result");
+        CachingToolCallback tool = cachingTool(new ToolProperties.Cache(Duration.ofMinutes(5), 10));
+
+        // Act & Assert
+        assertThatThrownBy(() -> tool.call("{}")).hasMessageContaining("OpenAI unavailable");
+        assertThat(tool.call("{}")).isEqualTo("result");
+        assertThat(meterRegistry.get("mcp.tool.calls").tag("outcome", "error").timer().count()).isEqualTo(1);
+    }
+
+    private CachingToolCallback cachingTool(ToolProperties.Cache cacheSpec) {
+        return new CachingToolCallback(delegate, cacheSpec, meterRegistry, clock);
+    }
+
+    private static class MutableClock extends Clock {
+
+        private Instant now = Instant.parse("2025-01-01T00:00:00Z");
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}